@@ -24,6 +24,6 @@ public class DeselectAction extends Action {
 	public void execute() {
 		this.game.getBoard().clearAllLocationHighlights();
 		this.token.setSelected(false);
-		this.game.getGamePanel().repaint();
+		this.game.notifyChanged();
 	}
 }
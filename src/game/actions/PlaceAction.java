@@ -1,13 +1,14 @@
 package game.actions;
 
+import game.board.Adjacency;
 import game.board.Location;
+import game.board.Position;
+import game.engine.Move;
 import game.games.Game;
 import game.tokens.Token;
 import game.tokens.TokenStatus;
 import game.players.Player;
 import game.players.PlayerID;
-import java.awt.Point;
-import java.util.List;
 
 /**
  * This is an action where a player places a selected token onto an empty location on the board.
@@ -35,58 +36,49 @@ public class PlaceAction extends Action {
 	 */
 	@Override
 	public void execute() {
-		if (this.destination.hasToken()) return;
+		Position position = this.game.getPosition();
+		if (position.isOccupied(this.destination.getIndex())) return;
 
 		// Check that the player can reach the destination based on game jump/slide rules
-		if (this.token.getStatus() == TokenStatus.ON_BOARD && !this.token.getPlayer().canJump() &&
-				!this.destination.hasNeighbour(this.token.getBoardLocation())) {
+		if (this.token.getStatus() == TokenStatus.ON_BOARD && !position.canJump(this.token.getPlayer().getId()) &&
+				!Adjacency.isAdjacent(this.token.getBoardLocation().getIndex(), this.destination.getIndex())) {
 			return;
 		}
 
 		this.moveToken();
 		new DeselectAction(this.game, this.token).execute();
 
-		// Check if a mill has been formed
-		List<Token> mill = this.game.getBoard().checkForMill(this.token);
+		// Check if any mills have been formed; with no opponent tokens on the board there is nothing to remove
+		int mills = this.game.getBoard().checkForMill(this.token);
+		PlayerID opponent = this.token.getPlayer().getId().opponent();
 
-		if (mill != null) {
-			this.processMill(mill);
+		if (mills != 0 && this.game.getBoard().getOccupancy(opponent) != 0) {
+			this.processMill();
 		} else {
 			this.game.switchTurns();
 		}
 
-		this.game.getGamePanel().repaint();
+		this.game.notifyChanged();
 	}
 
 	/**
 	 * Moves the token to the new location.
 	 */
 	private void moveToken() {
-		// Remove the token from any previous location
+		// Record the move for undo before the token leaves its previous location
 		Location previousLocation = this.token.getBoardLocation();
+		this.game.recordMove(previousLocation == null ? Move.NONE : previousLocation.getIndex(),
+				this.destination.getIndex());
 
-		if (previousLocation != null) {
-			previousLocation.removeToken();
-		}
-
-		// Place the token on the new location
-		this.token.setBoardLocation(this.destination);
-		this.destination.setToken(this.token);
-		this.token.setPoint(new Point(this.destination.getX(), this.destination.getY()));
-		this.token.setStatus(TokenStatus.ON_BOARD);
-
-		// Remove any mills the token was part of
-		this.game.removeMill(this.token);
+		// The board updates its mills as the token leaves one location and lands on the other
+		this.token.placeOn(this.destination);
 	}
 
 	/**
-	 * Handles if a mill was formed.
-	 *
-	 * @param mill the list of tokens forming the mill
+	 * Handles if one or more mills were formed.
 	 */
-	private void processMill(List<Token> mill) {
+	private void processMill() {
 		this.game.millFormed = true;
-		this.game.addMill(mill);
 
 		Player player = this.token.getPlayer();
 
@@ -2,7 +2,6 @@ package game.actions;
 
 import game.games.Game;
 import game.tokens.Token;
-import game.tokens.TokenStatus;
 
 /**
  * An action to remove a token from the board.
@@ -20,25 +19,19 @@ public class RemoveAction extends Action {
     /**
      * Executes the remove action by removing the token from the board.
      * If the token is part of a mill, the mill is also processed.
-     * If the game is over, it ends the game.
      */
     @Override
     public void execute() {
        if(this.token.isSelected()){
            // Remove the token
+           this.game.recordCapture(this.token.getBoardLocation().getIndex());
            this.token.killToken();
            this.game.deselectAllTokens();
 
-           // Remove any mills this token was part of
-           this.game.removeMill(this.token);
-           this.game.switchTurns();
-           this.game.getGamePanel().repaint();
-
-           // Check if the game is over
-           if (this.token.getPlayer().getTokenBank().getByStatus(TokenStatus.DEAD).size() > 6) {
-               this.game.endGame();
-           }
+           // The board drops any mills the token was part of; finish the turn and the game decides if it is over
            this.game.millFormed = false;
+           this.game.switchTurns();
+           this.game.notifyChanged();
        }
     }
 }
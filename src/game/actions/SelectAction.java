@@ -36,6 +36,6 @@ public class SelectAction extends Action {
 			this.token.getBoardLocation().highlightAdjacentFreeLocations();
 		}
 
-		this.game.getGamePanel().repaint();
+		this.game.notifyChanged();
 	}
 }
@@ -0,0 +1,108 @@
+package game.board;
+
+/**
+ * A precomputed table of which locations are adjacent, stored as an occupancy mask (see {@link Position}) of the
+ * neighbours of each location. Tokens slide along these connections once all tokens have been placed.
+ */
+public final class Adjacency {
+    /**
+     * The mask of the neighbours of each location, indexed by location index.
+     */
+    private static final int[] NEIGHBOURS = new int[Position.LOCATION_COUNT];
+
+    /**
+     * The mask of the side midpoints, the only locations joined to other squares.
+     */
+    private static final int MIDPOINTS = 0xAAAAAA;
+
+    static {
+        for (int square = 0; square < 3; square++) {
+            for (int offset = 0; offset < 8; offset++) {
+                int index = Position.indexOf(square, offset);
+
+                // Link the location to the neighbours in the same square
+                NEIGHBOURS[index] |= 1 << Position.indexOf(square, (offset + 7) % 8);
+                NEIGHBOURS[index] |= 1 << Position.indexOf(square, (offset + 1) % 8);
+
+                // Link the edges between the squares
+                if (offset % 2 == 1 && square == 1) {
+                    NEIGHBOURS[index] |= 1 << Position.indexOf(0, offset);
+                    NEIGHBOURS[index] |= 1 << Position.indexOf(2, offset);
+                } else if (offset % 2 == 1) {
+                    NEIGHBOURS[index] |= 1 << Position.indexOf(1, offset);
+                }
+            }
+        }
+    }
+
+    /**
+     * This class only contains the static table.
+     */
+    private Adjacency() {}
+
+    /**
+     * @param index The location index.
+     * @return The mask of the locations adjacent to the location.
+     */
+    public static int getNeighbours(int index) {
+        return NEIGHBOURS[index];
+    }
+
+    /**
+     * Finds every location adjacent to at least one of a set of locations, with shifts rather than a table lookup
+     * per location: neighbours in a square are one offset apart within the square's byte, and the edges between
+     * squares join the same side midpoint of neighbouring bytes.
+     * @param locations The mask of the locations.
+     * @return The mask of the locations adjacent to any of them.
+     */
+    public static int getAdjacent(int locations) {
+        return next(locations) | previous(locations) | (locations << 8 | locations >>> 8) & MIDPOINTS;
+    }
+
+    /**
+     * Counts the slides from a set of locations to another, with shifts rather than a scan of the locations.
+     * @param from The mask of the locations slid from, such as a player's tokens.
+     * @param to The mask of the locations slid to, such as the empty locations.
+     * @return The number of pairs of adjacent locations with one in each mask.
+     */
+    public static int countSlides(int from, int to) {
+        return Integer.bitCount(from & next(to)) + Integer.bitCount(from & previous(to)) +
+                Integer.bitCount(from & to << 8 & MIDPOINTS) + Integer.bitCount(from & to >>> 8 & MIDPOINTS);
+    }
+
+    /**
+     * @param locations The mask of some locations.
+     * @return The mask of the locations one offset further round each location's square.
+     */
+    private static int next(int locations) {
+        return (locations << 1 & 0xFEFEFE) | (locations >>> 7 & 0x010101);
+    }
+
+    /**
+     * @param locations The mask of some locations.
+     * @return The mask of the locations one offset back round each location's square.
+     */
+    private static int previous(int locations) {
+        return (locations >>> 1 & 0x7F7F7F) | (locations << 7 & 0x808080);
+    }
+
+    /**
+     * Checks if two locations are adjacent.
+     * @param from The index of the first location.
+     * @param to The index of the second location.
+     * @return True if the locations are adjacent, false otherwise.
+     */
+    public static boolean isAdjacent(int from, int to) {
+        return (NEIGHBOURS[from] & (1 << to)) != 0;
+    }
+
+    /**
+     * Finds the empty locations a token can slide to.
+     * @param index The index of the location the token is on.
+     * @param occupied The mask of all locations with a token on them.
+     * @return The mask of the empty locations adjacent to the location.
+     */
+    public static int getFreeNeighbours(int index, int occupied) {
+        return NEIGHBOURS[index] & ~occupied;
+    }
+}
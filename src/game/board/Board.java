@@ -1,5 +1,6 @@
 package game.board;
 
+import game.players.PlayerID;
 import game.tokens.Token;
 import java.awt.Color;
 import java.awt.Graphics;
@@ -34,33 +35,32 @@ public class Board extends JComponent {
      */
     private final Location[][] locations = new Location[3][8];
 
+    /**
+     * The occupancy mask of each player, indexed by the player ID ordinal. See {@link Position}.
+     */
+    private final int[] occupancy = new int[2];
+
+    /**
+     * The lines each player has filled (see {@link Mills#getFullLines(int)}), indexed by the player ID ordinal.
+     */
+    private final int[] fullLines = new int[2];
+
+    /**
+     * The mask of each player's tokens that are in a mill, indexed by the player ID ordinal.
+     * This is updated as tokens are placed and taken away, so mill checks never scan the tokens.
+     */
+    private final int[] millMembers = new int[2];
+
     /**
      * Creates a new board with locations and no tokens.
      */
     public Board() {
         for (int square = 0; square < 3; square++) {
             for (int offset = 0; offset < 8; offset++) {
-                this.locations[square][offset] = new Location();
-            }
-        }
-
-        for (int square = 0; square < 3; square++) {
-            for (int offset = 0; offset < 8; offset++) {
-                // Set up the location's position
+                // Set up the location's position; its neighbours come from the adjacency table
+                this.locations[square][offset] = new Location(this, Position.indexOf(square, offset));
                 this.locations[square][offset].setCentre(
                         new Point(this.calculateX(square, offset), this.calculateY(square, offset)));
-
-                // Link the location to the neighbours in the same square
-                this.locations[square][offset].addNeighbour(this.locations[square][(offset + 7) % 8]);
-                this.locations[square][offset].addNeighbour(this.locations[square][(offset + 1) % 8]);
-
-                // Link the edges between the squares
-                if (offset % 2 == 1 && square == 1) {
-                    this.locations[square][offset].addNeighbour(this.locations[0][offset]);
-                    this.locations[square][offset].addNeighbour(this.locations[2][offset]);
-                } else if (offset % 2 == 1) {
-                    this.locations[square][offset].addNeighbour(this.locations[1][offset]);
-                }
             }
         }
     }
@@ -124,60 +124,99 @@ public class Board extends JComponent {
     }
 
     /**
-     * Checks if the given token is in a mill.
-     * @param token The token to check for.
-     * @return A list of tokens in the mill, null if there is no mill.
+     * Retrieves the location with the given index.
+     * @param index The location index.
+     * @return The location whose bit in the occupancy masks has the given index.
      */
-    public List<Token> checkForMill(Token token) {
-        //
-        Location location = token.getBoardLocation();
-        // Checking each neighbour of the token
-        for (Location neighbour1 : location.getNeighbours()) {
-            Token neighbour1Token = neighbour1.getToken();
-            if (neighbour1Token != null && neighbour1Token.getPlayer() == token.getPlayer()) {
-                // 2 ways to form a mill - move a piece to the edge of a mill
-                //  or move a piece to the middle of the mill
-                // perform middle check by checking other names from original token
-                for (Location neighbour2 : location.getNeighbours()) {
-                    Token neighbour2Token = neighbour2.getToken();
-                    if (neighbour1 != neighbour2 && neighbour2Token != null && neighbour2Token.getPlayer() == token.getPlayer()) {
-                        // Checking if the locations are in a straight line.
-                        int dx1 = Math.abs(neighbour1.getX() - location.getX());
-                        int dy1 = Math.abs(neighbour1.getY() - location.getY());
-                        int dx2 = Math.abs(neighbour2.getX() - location.getX());
-                        int dy2 = Math.abs(neighbour2.getY() - location.getY());
-                        if (dx1 == dx2 && dy1 == dy2) {
-                            ArrayList<Token> mill = new ArrayList<>();
-                            mill.add(location.getToken());
-                            mill.add(neighbour1.getToken());
-                            mill.add(neighbour2.getToken());
-                            return mill;
-                        }
-                    }
-                }
+    public Location getLocation(int index) {
+        return this.locations[index / 8][index % 8];
+    }
 
-                // no middle mill found, so check neighbours of neighbour to check for edge mill
-                for (Location neighbour2 : neighbour1.getNeighbours()) {
-                    Token neighbour2Token = neighbour2.getToken();
-                    if (neighbour2Token != null && neighbour2Token.getPlayer() == token.getPlayer()) {
-                        // Checking if the locations are in a straight line.
-                        int dx1 = neighbour1.getX() - location.getX();
-                        int dy1 = neighbour1.getY() - location.getY();
-                        int dx2 = neighbour2.getX() - neighbour1.getX();
-                        int dy2 = neighbour2.getY() - neighbour1.getY();
-                        if (dx1 == dx2 && dy1 == dy2) {
-                            ArrayList<Token> mill = new ArrayList<>();
-                            mill.add(location.getToken());
-                            mill.add(neighbour1.getToken());
-                            mill.add(neighbour2.getToken());
-                            return mill;
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Gets the locations occupied by a player.
+     * @param id The player to check.
+     * @return The occupancy mask of the player's tokens on the board.
+     */
+    public int getOccupancy(PlayerID id) {
+        return this.occupancy[id.ordinal()];
+    }
 
-        return null;
+    /**
+     * Checks if there is a token on a location.
+     * @param index The location index.
+     * @return True if either player has a token on the location, false otherwise.
+     */
+    public boolean isOccupied(int index) {
+        return (this.getOccupied() & (1 << index)) != 0;
+    }
+
+    /**
+     * @return A mask of all locations with a token on them.
+     */
+    public int getOccupied() {
+        return this.occupancy[0] | this.occupancy[1];
+    }
+
+    /**
+     * Marks a location as holding a player's token.
+     * @param index The location index.
+     * @param id The player who owns the token.
+     */
+    void occupy(int index, PlayerID id) {
+        int player = id.ordinal();
+        this.occupancy[player] |= 1 << index;
+        Mills.update(this.fullLines, this.millMembers, player, this.occupancy[player], index);
+    }
+
+    /**
+     * Marks a location as no longer holding a player's token.
+     * @param index The location index.
+     * @param id The player who owned the token.
+     */
+    void vacate(int index, PlayerID id) {
+        int player = id.ordinal();
+        this.occupancy[player] &= ~(1 << index);
+        Mills.update(this.fullLines, this.millMembers, player, this.occupancy[player], index);
+    }
+
+    /**
+     * Gets the tokens of a player that are in a mill.
+     * @param id The player to check.
+     * @return The mask of the locations of the player's tokens in a mill.
+     */
+    public int getMillMembers(PlayerID id) {
+        return this.millMembers[id.ordinal()];
+    }
+
+    /**
+     * Checks if the token on a location is in a mill.
+     * @param index The location index.
+     * @return True if the location has a token which is in a mill, false otherwise.
+     */
+    public boolean isInMill(int index) {
+        return ((this.millMembers[0] | this.millMembers[1]) & (1 << index)) != 0;
+    }
+
+    /**
+     * Finds which of a player's tokens the opponent may remove after closing a mill: any token not in a mill,
+     * or any token at all if every one is in a mill.
+     * @param id The player losing a token.
+     * @return The mask of the locations of the player's removable tokens.
+     */
+    public int getRemovable(PlayerID id) {
+        int player = id.ordinal();
+        int free = this.occupancy[player] & ~this.millMembers[player];
+        return free != 0 ? free : this.occupancy[player];
+    }
+
+    /**
+     * Checks if the given token is in a mill.
+     * @param token The token to check for.
+     * @return The union of the masks of every mill through the token's location, 0 if there is no mill.
+     */
+    public int checkForMill(Token token) {
+        int index = token.getBoardLocation().getIndex();
+        return Mills.getMills(this.getOccupancy(token.getPlayer().getId()), index);
     }
 
     /**
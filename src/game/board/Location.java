@@ -4,8 +4,6 @@ import game.tokens.Token;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
 import javax.swing.JComponent;
 
 /**
@@ -38,16 +36,31 @@ public class Location extends JComponent {
     private Token token;
 
     /**
-     * The neighbouring locations.
-     * NOTE: May not need this later
+     * The board this location is on.
      */
-    private final List<Location> neighbours = new ArrayList<>();
+    private final Board board;
+
+    /**
+     * The index of this location's bit in the board occupancy masks.
+     */
+    private final int index;
 
     /**
      * Creates a new location without a position. The centre-point must be set later with Location::setCentre.
+     * @param board The board this location is on.
+     * @param index The index of this location's bit in the board occupancy masks.
      */
-    public Location() {
+    public Location(Board board, int index) {
         super();
+        this.board = board;
+        this.index = index;
+    }
+
+    /**
+     * @return The index of this location's bit in the board occupancy masks.
+     */
+    public int getIndex() {
+        return this.index;
     }
 
     /**
@@ -103,44 +116,43 @@ public class Location extends JComponent {
         }
 
         this.token = token;
+        this.board.occupy(this.index, token.getPlayer().getId());
     }
 
     /**
      * Removes the token from this location (if one exists).
      */
     public void removeToken() {
+        if (this.token != null) {
+            this.board.vacate(this.index, this.token.getPlayer().getId());
+        }
+
         this.token = null;
     }
 
+    /**
+     * Checks if the token on this location is in a mill.
+     * @return True if there is a token on this location and it is in a mill, false otherwise.
+     */
+    public boolean isInMill() {
+        return this.board.isInMill(this.index);
+    }
+
     /**
      * Determines if a given location is adjacent to this location.
      * @param location The location to check for adjacency.
      * @return True if the given location is adjacent to this location, false otherwise.
      */
     public boolean hasNeighbour(Location location) {
-        for (Location neighbour : this.neighbours) {
-            if (neighbour == location) {
-                return true;
-            }
-        }
-
-        return false;
+        return Adjacency.isAdjacent(this.index, location.getIndex());
     }
 
     /**
      * Gets the neighbours of this location.
-     * @return A list of the adjacent locations.
+     * @return The mask of the adjacent locations' indices.
      */
-    public List<Location> getNeighbours() {
-        return this.neighbours;
-    }
-
-    /**
-     * Adds a neighbouring location.
-     * @param location An adjacent location.
-     */
-    public void addNeighbour(Location location) {
-        this.neighbours.add(location);
+    public int getNeighbours() {
+        return Adjacency.getNeighbours(this.index);
     }
 
     /**
@@ -159,10 +171,11 @@ public class Location extends JComponent {
      * Highlights all adjacent locations that don't have a token on them.
      */
     public void highlightAdjacentFreeLocations(){
-        for (Location neighbour : this.getNeighbours()) {
-            if (!neighbour.hasToken()) {
-                neighbour.setHighlighted(true);
-            }
+        int free = Adjacency.getFreeNeighbours(this.index, this.board.getOccupied());
+
+        while (free != 0) {
+            this.board.getLocation(Integer.numberOfTrailingZeros(free)).setHighlighted(true);
+            free &= free - 1;
         }
     }
 
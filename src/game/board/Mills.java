@@ -0,0 +1,208 @@
+package game.board;
+
+/**
+ * A precomputed table of the 16 lines on the board that form a mill. Lines are stored as occupancy masks
+ * (see {@link Position}), and every location is on exactly two of them, so checking for a mill is a couple of
+ * mask tests with no dependence on screen coordinates.
+ */
+public final class Mills {
+    /**
+     * The number of lines on the board that form a mill.
+     */
+    public static final int LINE_COUNT = 16;
+
+    /**
+     * The mask of every line that forms a mill.
+     */
+    private static final int[] LINES = new int[LINE_COUNT];
+
+    /**
+     * The first line through each location, indexed by location index.
+     */
+    private static final int[] FIRST_LINE = new int[Position.LOCATION_COUNT];
+
+    /**
+     * The second line through each location, indexed by location index.
+     */
+    private static final int[] SECOND_LINE = new int[Position.LOCATION_COUNT];
+
+    /**
+     * The numbers of the two lines through each location as a mask of line bits, indexed by location index.
+     */
+    private static final int[] LINES_THROUGH = new int[Position.LOCATION_COUNT];
+
+    static {
+        int line = 0;
+
+        // The four sides of each square run between its corners, which have even offsets
+        for (int square = 0; square < 3; square++) {
+            for (int corner = 0; corner < 8; corner += 2) {
+                LINES[line++] = bit(square, corner) | bit(square, corner + 1) | bit(square, (corner + 2) % 8);
+            }
+        }
+
+        // The four axial lines join the middles of the sides, which have odd offsets
+        for (int offset = 1; offset < 8; offset += 2) {
+            LINES[line++] = bit(0, offset) | bit(1, offset) | bit(2, offset);
+        }
+
+        for (line = 0; line < LINE_COUNT; line++) {
+            int mill = LINES[line];
+
+            for (int index = 0; index < Position.LOCATION_COUNT; index++) {
+                if ((mill & (1 << index)) == 0) continue;
+
+                LINES_THROUGH[index] |= 1 << line;
+                if (FIRST_LINE[index] == 0) {
+                    FIRST_LINE[index] = mill;
+                } else {
+                    SECOND_LINE[index] = mill;
+                }
+            }
+        }
+    }
+
+    /**
+     * This class only contains the static table.
+     */
+    private Mills() {}
+
+    /**
+     * @param square The location's square.
+     * @param offset The location's square offset.
+     * @return A mask with only the location's bit set.
+     */
+    private static int bit(int square, int offset) {
+        return 1 << Position.indexOf(square, offset);
+    }
+
+    /**
+     * Gets a line that forms a mill.
+     * @param line The line number, from 0 to LINE_COUNT - 1.
+     * @return The mask of the locations on the line.
+     */
+    public static int getLine(int line) {
+        return LINES[line];
+    }
+
+    /**
+     * @param index The location index.
+     * @return The mask of the first line through the location.
+     */
+    public static int getFirstLine(int index) {
+        return FIRST_LINE[index];
+    }
+
+    /**
+     * @param index The location index.
+     * @return The mask of the second line through the location.
+     */
+    public static int getSecondLine(int index) {
+        return SECOND_LINE[index];
+    }
+
+    /**
+     * Finds every mill through a location for a player's tokens, such as the mills closed by moving a token there.
+     * @param occupancy The occupancy mask of the player's tokens, including the token on the location.
+     * @param index The location index.
+     * @return The union of the masks of the mills through the location, or 0 if there are none.
+     */
+    public static int getMills(int occupancy, int index) {
+        int first = FIRST_LINE[index];
+        int second = SECOND_LINE[index];
+
+        return ((occupancy & first) == first ? first : 0) | ((occupancy & second) == second ? second : 0);
+    }
+
+    /**
+     * Counts the mills through a location for a player's tokens.
+     * @param occupancy The occupancy mask of the player's tokens, including the token on the location.
+     * @param index The location index.
+     * @return The number of mills through the location, from 0 to 2.
+     */
+    public static int countMills(int occupancy, int index) {
+        int first = FIRST_LINE[index];
+        int second = SECOND_LINE[index];
+
+        return ((occupancy & first) == first ? 1 : 0) + ((occupancy & second) == second ? 1 : 0);
+    }
+
+    /**
+     * Finds every token of a player which is in a formed mill.
+     * @param occupancy The occupancy mask of the player's tokens.
+     * @return The mask of the player's tokens which are on a full line.
+     */
+    public static int getMillMembers(int occupancy) {
+        int members = 0;
+
+        for (int mill : LINES) {
+            members |= (occupancy & mill) == mill ? mill : 0;
+        }
+
+        return members;
+    }
+
+    /**
+     * Finds which of a player's tokens the opponent can remove after forming a mill. These are the tokens that
+     * aren't in a mill, or all the tokens if every one of them is in a mill.
+     * @param occupancy The occupancy mask of the player's tokens.
+     * @return The mask of the tokens which can be removed.
+     */
+    public static int getRemovable(int occupancy) {
+        int free = occupancy & ~getMillMembers(occupancy);
+        return free != 0 ? free : occupancy;
+    }
+
+    /**
+     * Finds which lines a player has filled.
+     * @param occupancy The occupancy mask of the player's tokens.
+     * @return A mask with bit n set if line n (see {@link #getLine(int)}) is full.
+     */
+    public static int getFullLines(int occupancy) {
+        int fullLines = 0;
+
+        for (int line = 0; line < LINE_COUNT; line++) {
+            fullLines |= (occupancy & LINES[line]) == LINES[line] ? 1 << line : 0;
+        }
+
+        return fullLines;
+    }
+
+    /**
+     * Incrementally updates a player's full lines and mill members after the occupancy of one location changed.
+     * Only the two lines through the location can change, so this takes constant time.
+     * @param fullLines The full-line masks (see {@link #getFullLines(int)}), indexed by player; updated in place.
+     * @param members The mill member masks (see {@link #getMillMembers(int)}), indexed by player; updated in place.
+     * @param player The index of the player whose occupancy changed.
+     * @param occupancy The player's new occupancy mask.
+     * @param index The index of the location which changed.
+     */
+    public static void update(int[] fullLines, int[] members, int player, int occupancy, int index) {
+        int through = LINES_THROUGH[index];
+        int first = FIRST_LINE[index];
+        int second = SECOND_LINE[index];
+        int before = fullLines[player];
+        int after = before & ~through;
+
+        // Each line through the location is full or not, depending only on the new occupancy
+        if ((occupancy & first) == first) after |= through & -through;
+        if ((occupancy & second) == second) after |= through & (through - 1);
+        if (after == before) return;
+
+        fullLines[player] = after;
+
+        // Recheck every location on a line that changed, as it may still be on another full line
+        int changed = ((after ^ before) & (through & -through)) != 0 ? first : 0;
+        changed |= ((after ^ before) & (through & (through - 1))) != 0 ? second : 0;
+        int result = members[player] & ~changed;
+
+        for (int points = changed; points != 0; points &= points - 1) {
+            int point = Integer.numberOfTrailingZeros(points);
+            if ((after & LINES_THROUGH[point]) != 0) {
+                result |= 1 << point;
+            }
+        }
+
+        members[player] = result;
+    }
+}
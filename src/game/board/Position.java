@@ -0,0 +1,530 @@
+package game.board;
+
+import game.engine.Move;
+import game.players.PlayerID;
+import game.tokens.TokenBank;
+
+/**
+ * A headless description of a game position, independent of the Swing components.
+ * Each player's tokens on the board are stored in a 24-bit occupancy mask, where bit (square * 8 + offset) is set
+ * if the player has a token on the location with that square and offset. Every position also carries a Zobrist key
+ * (see {@link Zobrist}) which is kept up to date as the position changes.
+ */
+public class Position {
+    /**
+     * The number of locations on the board.
+     */
+    public static final int LOCATION_COUNT = 24;
+
+    /**
+     * A mask with the bit of every location set.
+     */
+    public static final int ALL_LOCATIONS = (1 << LOCATION_COUNT) - 1;
+
+    /**
+     * The occupancy mask of each player, indexed by the player ID ordinal.
+     */
+    private final int[] occupancy = new int[2];
+
+    /**
+     * The number of tokens each player has not placed yet, indexed by the player ID ordinal.
+     */
+    private final int[] inHand = new int[2];
+
+    /**
+     * The number of tokens each player has lost, indexed by the player ID ordinal.
+     */
+    private final int[] dead = new int[2];
+
+    /**
+     * The lines each player has filled (see {@link Mills#getFullLines(int)}), indexed by the player ID ordinal.
+     */
+    private final int[] fullLines = new int[2];
+
+    /**
+     * The mask of each player's tokens that are in a mill, indexed by the player ID ordinal.
+     * This is kept up to date as tokens move, so finding removable tokens is a single mask operation.
+     */
+    private final int[] millMembers = new int[2];
+
+    /**
+     * The number of lines where each player has two tokens and the third location is empty, indexed by the player
+     * ID ordinal.
+     */
+    private final int[] openTwos = new int[2];
+
+    /**
+     * The player whose turn it is.
+     */
+    private PlayerID sideToMove;
+
+    /**
+     * Indicates whether the side to move has formed a mill and must remove a token before the turn ends.
+     */
+    private boolean pendingRemoval;
+
+    /**
+     * The Zobrist key of this position.
+     */
+    private long key;
+
+    /**
+     * Creates the starting position: an empty board, all tokens in hand and black to move.
+     */
+    public Position() {
+        this.inHand[PlayerID.BLACK.ordinal()] = TokenBank.TOTAL_TOKEN_COUNT;
+        this.inHand[PlayerID.WHITE.ordinal()] = TokenBank.TOTAL_TOKEN_COUNT;
+        this.sideToMove = PlayerID.BLACK;
+        this.key = Zobrist.inHand(0, TokenBank.TOTAL_TOKEN_COUNT) ^ Zobrist.inHand(1, TokenBank.TOTAL_TOKEN_COUNT);
+    }
+
+    /**
+     * Creates a copy of the given position.
+     * @param other The position to copy.
+     */
+    public Position(Position other) {
+        System.arraycopy(other.occupancy, 0, this.occupancy, 0, 2);
+        System.arraycopy(other.inHand, 0, this.inHand, 0, 2);
+        System.arraycopy(other.dead, 0, this.dead, 0, 2);
+        System.arraycopy(other.fullLines, 0, this.fullLines, 0, 2);
+        System.arraycopy(other.millMembers, 0, this.millMembers, 0, 2);
+        System.arraycopy(other.openTwos, 0, this.openTwos, 0, 2);
+        this.sideToMove = other.sideToMove;
+        this.pendingRemoval = other.pendingRemoval;
+        this.key = other.key;
+    }
+
+    /**
+     * Finds the bit index of a location.
+     * @param square The location's square.
+     * @param offset The location's square offset.
+     * @return The index of the location's bit in an occupancy mask.
+     */
+    public static int indexOf(int square, int offset) {
+        return square * 8 + offset;
+    }
+
+    /**
+     * Sets all the pieces of a player at once.
+     * @param id The player to update.
+     * @param occupancy The player's occupancy mask.
+     * @param inHand The number of tokens the player has not placed yet.
+     * @param dead The number of tokens the player has lost.
+     */
+    public void setPieces(PlayerID id, int occupancy, int inHand, int dead) {
+        int player = id.ordinal();
+
+        // Toggle every location whose occupancy changed, and swap the in-hand key
+        for (int changed = this.occupancy[player] ^ occupancy; changed != 0; changed &= changed - 1) {
+            this.key ^= Zobrist.token(player, Integer.numberOfTrailingZeros(changed));
+        }
+        this.key ^= Zobrist.inHand(player, this.inHand[player]) ^ Zobrist.inHand(player, inHand);
+
+        this.occupancy[player] = occupancy;
+        this.inHand[player] = inHand;
+        this.dead[player] = dead;
+        this.fullLines[player] = Mills.getFullLines(occupancy);
+        this.millMembers[player] = Mills.getMillMembers(occupancy);
+
+        // Both players' open twos depend on the empty locations, so they are all counted again
+        this.openTwos[0] = 0;
+        this.openTwos[1] = 0;
+        for (int line = 0; line < Mills.LINE_COUNT; line++) {
+            this.countLine(Mills.getLine(line));
+        }
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The occupancy mask of the given player.
+     */
+    public int getOccupancy(PlayerID id) {
+        return this.occupancy[id.ordinal()];
+    }
+
+    /**
+     * @param id The player to check.
+     * @return A mask with bit n set if the player has filled line n (see {@link Mills#getLine(int)}).
+     */
+    public int getFullLines(PlayerID id) {
+        return this.fullLines[id.ordinal()];
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The mask of the player's tokens that are in a mill.
+     */
+    public int getMillMembers(PlayerID id) {
+        return this.millMembers[id.ordinal()];
+    }
+
+    /**
+     * Finds which of a player's tokens the opponent may remove after closing a mill: any token not in a mill,
+     * or any token at all if every one is in a mill.
+     * @param id The player losing a token.
+     * @return The mask of the player's removable tokens.
+     */
+    public int getRemovable(PlayerID id) {
+        int player = id.ordinal();
+        int free = this.occupancy[player] & ~this.millMembers[player];
+        return free != 0 ? free : this.occupancy[player];
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The number of lines where the player has two tokens and the third location is empty.
+     */
+    public int getOpenTwos(PlayerID id) {
+        return this.openTwos[id.ordinal()];
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The number of ways the player can slide a token to an empty neighbour.
+     */
+    public int getMobility(PlayerID id) {
+        return Adjacency.countSlides(this.occupancy[id.ordinal()], ALL_LOCATIONS & ~this.getOccupied());
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The number of the player's tokens on the board with no empty neighbour.
+     */
+    public int getBlocked(PlayerID id) {
+        int empty = ALL_LOCATIONS & ~this.getOccupied();
+        return Integer.bitCount(this.occupancy[id.ordinal()] & ~Adjacency.getAdjacent(empty));
+    }
+
+    /**
+     * @return A mask of all locations with a token on them.
+     */
+    public int getOccupied() {
+        return this.occupancy[0] | this.occupancy[1];
+    }
+
+    /**
+     * @return A mask of all locations without a token on them.
+     */
+    public int getEmpty() {
+        return ~this.getOccupied() & ALL_LOCATIONS;
+    }
+
+    /**
+     * Checks if there is a token on a location.
+     * @param index The location index.
+     * @return True if either player has a token on the location, false otherwise.
+     */
+    public boolean isOccupied(int index) {
+        return (this.getOccupied() & (1 << index)) != 0;
+    }
+
+    /**
+     * Finds who owns the token on a location.
+     * @param index The location index.
+     * @return The owner of the token, or null if the location is empty.
+     */
+    public PlayerID getOwner(int index) {
+        if ((this.occupancy[PlayerID.BLACK.ordinal()] & (1 << index)) != 0) {
+            return PlayerID.BLACK;
+        } else if ((this.occupancy[PlayerID.WHITE.ordinal()] & (1 << index)) != 0) {
+            return PlayerID.WHITE;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The number of tokens the player has on the board.
+     */
+    public int getOnBoard(PlayerID id) {
+        return Integer.bitCount(this.occupancy[id.ordinal()]);
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The number of tokens the player has not placed yet.
+     */
+    public int getInHand(PlayerID id) {
+        return this.inHand[id.ordinal()];
+    }
+
+    /**
+     * @param id The player to check.
+     * @return The number of tokens the player has lost.
+     */
+    public int getDead(PlayerID id) {
+        return this.dead[id.ordinal()];
+    }
+
+    /**
+     * @param id The player to check.
+     * @return True if the player has placed all their tokens, false otherwise.
+     */
+    public boolean placedAll(PlayerID id) {
+        return this.inHand[id.ordinal()] == 0;
+    }
+
+    /**
+     * @param id The player to check.
+     * @return True if the player can jump pieces, false if they must slide.
+     */
+    public boolean canJump(PlayerID id) {
+        return this.getOnBoard(id) < 4;
+    }
+
+    /**
+     * @param id The player to check.
+     * @return True if the player has lost too many tokens to keep playing.
+     */
+    public boolean hasLost(PlayerID id) {
+        return this.dead[id.ordinal()] > TokenBank.TOTAL_TOKEN_COUNT - 3;
+    }
+
+    /**
+     * @return The player whose turn it is.
+     */
+    public PlayerID getSideToMove() {
+        return this.sideToMove;
+    }
+
+    /**
+     * Sets whose turn it is.
+     * @param sideToMove The player whose turn it is.
+     */
+    public void setSideToMove(PlayerID sideToMove) {
+        if (sideToMove != this.sideToMove) {
+            this.key ^= Zobrist.whiteToMove();
+        }
+
+        this.sideToMove = sideToMove;
+    }
+
+    /**
+     * Passes the turn to the other player.
+     */
+    public void switchSideToMove() {
+        this.sideToMove = this.sideToMove == PlayerID.BLACK ? PlayerID.WHITE : PlayerID.BLACK;
+        this.key ^= Zobrist.whiteToMove();
+    }
+
+    /**
+     * @return True if the side to move has formed a mill and must remove a token, false otherwise.
+     */
+    public boolean isPendingRemoval() {
+        return this.pendingRemoval;
+    }
+
+    /**
+     * Sets whether the side to move must remove a token.
+     * @param pendingRemoval True if the side to move has formed a mill and must remove a token.
+     */
+    public void setPendingRemoval(boolean pendingRemoval) {
+        if (pendingRemoval != this.pendingRemoval) {
+            this.key ^= Zobrist.pendingRemoval();
+        }
+
+        this.pendingRemoval = pendingRemoval;
+    }
+
+    /**
+     * @return The Zobrist key identifying this position.
+     */
+    public long getKey() {
+        return this.key;
+    }
+
+    /**
+     * @return The symmetry (see {@link Symmetry}) mapping this position to the canonical position of its class.
+     */
+    public int getCanonicalSymmetry() {
+        return Symmetry.canonical(this.occupancy[0], this.occupancy[1]);
+    }
+
+    /**
+     * Finds the key shared by this position and all its symmetric images: the Zobrist key of the canonical position.
+     * @return The canonical key.
+     */
+    public long getCanonicalKey() {
+        int symmetry = this.getCanonicalSymmetry();
+        if (symmetry == 0) return this.key;
+
+        // Only the tokens' locations change, so their keys are swapped for the keys of their images
+        long key = this.key;
+        for (int player = 0; player < 2; player++) {
+            for (int tokens = this.occupancy[player]; tokens != 0; tokens &= tokens - 1) {
+                int index = Integer.numberOfTrailingZeros(tokens);
+                key ^= Zobrist.token(player, index) ^ Zobrist.token(player, Symmetry.apply(symmetry, index));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Places a token from a player's hand onto an empty location.
+     * @param id The player placing the token.
+     * @param index The destination location index.
+     */
+    public void place(PlayerID id, int index) {
+        int player = id.ordinal();
+        this.toggle(player, index);
+        this.key ^= Zobrist.inHand(player, this.inHand[player]) ^ Zobrist.inHand(player, this.inHand[player] - 1);
+        this.inHand[player]--;
+    }
+
+    /**
+     * Moves a player's token from one location to another, by sliding or jumping.
+     * @param id The player moving the token.
+     * @param from The index of the location the token is on.
+     * @param to The index of the destination location.
+     */
+    public void move(PlayerID id, int from, int to) {
+        int player = id.ordinal();
+        this.toggle(player, from);
+        this.toggle(player, to);
+    }
+
+    /**
+     * Removes a player's token from the board and out of the game.
+     * @param id The player losing the token.
+     * @param index The index of the location the token is on.
+     */
+    public void remove(PlayerID id, int index) {
+        int player = id.ordinal();
+        this.toggle(player, index);
+        this.dead[player]++;
+    }
+
+    /**
+     * Adds or takes away a token, keeping the Zobrist key, mill tracking and open twos up to date.
+     * @param player The ordinal of the player owning the token.
+     * @param index The index of the location the token is added to or taken from.
+     */
+    private void toggle(int player, int index) {
+        int sign = (this.occupancy[player] & 1 << index) == 0 ? 1 : -1;
+        this.occupancy[player] ^= 1 << index;
+        this.key ^= Zobrist.token(player, index);
+        Mills.update(this.fullLines, this.millMembers, player, this.occupancy[player], index);
+
+        this.updateOpenTwos(player, index, Mills.getFirstLine(index), sign);
+        this.updateOpenTwos(player, index, Mills.getSecondLine(index), sign);
+    }
+
+    /**
+     * Updates the open twos of a line through a location after a token is added to it or taken from it.
+     * @param player The ordinal of the player owning the token.
+     * @param index The index of the location.
+     * @param line The mask of the line.
+     * @param sign 1 if the token was added, -1 if it was taken away.
+     */
+    private void updateOpenTwos(int player, int index, int line, int sign) {
+        int others = line & ~(1 << index);
+
+        // With the location empty, two tokens of one player on the other locations are an open two, and with it
+        // full, one of the player's tokens and an empty location are
+        if ((this.occupancy[0] & others) == others) {
+            this.openTwos[0] -= sign;
+        } else if ((this.occupancy[1] & others) == others) {
+            this.openTwos[1] -= sign;
+        } else if ((this.occupancy[player] & others) != 0 && (this.occupancy[player ^ 1] & others) == 0) {
+            this.openTwos[player] += sign;
+        }
+    }
+
+    /**
+     * Counts the open two a line gives a player, if it gives one.
+     * @param line The mask of the line.
+     */
+    private void countLine(int line) {
+        int empty = line & ~(this.occupancy[0] | this.occupancy[1]);
+        if (Integer.bitCount(empty) != 1) return;
+
+        // With exactly one empty location, a player with both other locations has an open two
+        int player = (this.occupancy[0] & line) == 0 ? 1 : (this.occupancy[1] & line) == 0 ? 0 : -1;
+        if (player != -1) {
+            this.openTwos[player]++;
+        }
+    }
+
+    /**
+     * Plays a whole turn for the side to move: the placement or movement, any removal, and passing the turn.
+     * @param move The encoded move (see {@link Move}).
+     */
+    public void make(int move) {
+        int player = this.sideToMove.ordinal();
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int captured = Move.getCaptured(move);
+
+        if (from == Move.NONE) {
+            this.place(this.sideToMove, to);
+        } else {
+            this.toggle(player, from);
+            this.toggle(player, to);
+        }
+
+        if (captured != Move.NONE) {
+            this.remove(this.sideToMove.opponent(), captured);
+        }
+
+        this.switchSideToMove();
+    }
+
+    /**
+     * Takes back a turn played with {@link #make(int)}, restoring this position exactly.
+     * @param move The encoded move that was the last one made.
+     */
+    public void unmake(int move) {
+        this.switchSideToMove();
+
+        int player = this.sideToMove.ordinal();
+        int opponent = player ^ 1;
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int captured = Move.getCaptured(move);
+
+        if (captured != Move.NONE) {
+            this.toggle(opponent, captured);
+            this.dead[opponent]--;
+        }
+
+        if (from == Move.NONE) {
+            this.toggle(player, to);
+            this.key ^= Zobrist.inHand(player, this.inHand[player]) ^ Zobrist.inHand(player, this.inHand[player] + 1);
+            this.inHand[player]++;
+        } else {
+            this.toggle(player, to);
+            this.toggle(player, from);
+        }
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof Position other)) return false;
+
+        return this.occupancy[0] == other.occupancy[0] && this.occupancy[1] == other.occupancy[1] &&
+                this.inHand[0] == other.inHand[0] && this.inHand[1] == other.inHand[1] &&
+                this.dead[0] == other.dead[0] && this.dead[1] == other.dead[1] &&
+                this.sideToMove == other.sideToMove && this.pendingRemoval == other.pendingRemoval;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.key);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+
+        for (int index = 0; index < LOCATION_COUNT; index++) {
+            PlayerID owner = this.getOwner(index);
+            output.append(owner == null ? '.' : owner == PlayerID.BLACK ? 'B' : 'W');
+        }
+
+        return output.append(' ').append(this.inHand[0]).append('/').append(this.inHand[1])
+                .append(' ').append(this.dead[0]).append('/').append(this.dead[1])
+                .append(' ').append(this.sideToMove).append(this.pendingRemoval ? " remove" : "").toString();
+    }
+}
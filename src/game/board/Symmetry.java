@@ -0,0 +1,152 @@
+package game.board;
+
+/**
+ * Precomputed tables of the 16 symmetries of the board: the 4 rotations and 4 reflections of the squares, each
+ * with or without swapping the inner and outer squares. A symmetry maps every line and every connection onto
+ * another, so symmetric positions have the same result and mirrored best moves.
+ * <p>
+ * Symmetry 0 is the identity. Symmetry s rotates the squares by (s & 3) quarter turns, mirrors them if bit 2 is
+ * set, and swaps the inner and outer squares if bit 3 is set. Since bit (square * 8 + offset) of an occupancy mask
+ * (see {@link Position}) holds a location, each square is one byte of the mask, and a mask is mapped with one
+ * table lookup per square.
+ * <p>
+ * The canonical form of a position is the image with the smallest masks, which caches, opening books and
+ * tablebases use to store one entry for each class of symmetric positions.
+ */
+public final class Symmetry {
+    /**
+     * The number of symmetries of the board.
+     */
+    public static final int COUNT = 16;
+
+    /**
+     * The symmetry flag which swaps the inner and outer squares.
+     */
+    private static final int SWAP = 8;
+
+    /**
+     * The image of each location, indexed by symmetry and location index.
+     */
+    private static final int[][] PERMUTATION = new int[COUNT][Position.LOCATION_COUNT];
+
+    /**
+     * The symmetry undoing each symmetry.
+     */
+    private static final int[] INVERSE = new int[COUNT];
+
+    /**
+     * The image of each byte of a square under each rotation and reflection, indexed by (symmetry & 7) and byte.
+     */
+    private static final int[][] SQUARE_IMAGE = new int[SWAP][256];
+
+    static {
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int square = 0; square < 3; square++) {
+                for (int offset = 0; offset < 8; offset++) {
+                    // Mirroring keeps corners (even offsets) on corners, and a quarter turn is two offsets
+                    int image = (symmetry & 4) != 0 ? (8 - offset) % 8 : offset;
+                    image = (image + 2 * (symmetry & 3)) % 8;
+                    int imageSquare = (symmetry & SWAP) != 0 ? 2 - square : square;
+                    PERMUTATION[symmetry][Position.indexOf(square, offset)] = Position.indexOf(imageSquare, image);
+                }
+            }
+        }
+
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int inverse = 0; inverse < COUNT; inverse++) {
+                boolean undoes = true;
+                for (int index = 0; index < Position.LOCATION_COUNT; index++) {
+                    undoes &= PERMUTATION[inverse][PERMUTATION[symmetry][index]] == index;
+                }
+
+                if (undoes) {
+                    INVERSE[symmetry] = inverse;
+                }
+            }
+        }
+
+        for (int symmetry = 0; symmetry < SWAP; symmetry++) {
+            for (int bits = 0; bits < 256; bits++) {
+                for (int offset = 0; offset < 8; offset++) {
+                    if ((bits & (1 << offset)) != 0) {
+                        SQUARE_IMAGE[symmetry][bits] |= 1 << PERMUTATION[symmetry][offset];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This class only contains the static tables.
+     */
+    private Symmetry() {}
+
+    /**
+     * @param symmetry The symmetry.
+     * @param index The location index.
+     * @return The index of the location's image.
+     */
+    public static int apply(int symmetry, int index) {
+        return PERMUTATION[symmetry][index];
+    }
+
+    /**
+     * @param symmetry The symmetry.
+     * @return The symmetry which maps every image back to its original.
+     */
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    /**
+     * Maps every location of an occupancy mask.
+     * @param symmetry The symmetry.
+     * @param mask The occupancy mask.
+     * @return The mask of the images of its locations.
+     */
+    public static int applyMask(int symmetry, int mask) {
+        int[] image = SQUARE_IMAGE[symmetry & (SWAP - 1)];
+        int inner = image[mask & 0xFF];
+        int middle = image[mask >>> 8 & 0xFF] << 8;
+        int outer = image[mask >>> 16];
+        return (symmetry & SWAP) != 0 ? outer | middle | inner << 16 : inner | middle | outer << 16;
+    }
+
+    /**
+     * Finds the symmetry mapping a pair of masks to its canonical form: the image with the smallest first mask,
+     * and among those the smallest second mask. The identity is preferred when there is a tie.
+     * @param first The first occupancy mask, e.g. of the side to move or of black.
+     * @param second The second occupancy mask.
+     * @return The canonical symmetry.
+     */
+    public static int canonical(int first, int second) {
+        long best = (long) first << Position.LOCATION_COUNT | second;
+        int canonical = 0;
+
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            long image = (long) applyMask(symmetry, first) << Position.LOCATION_COUNT | applyMask(symmetry, second);
+            if (image < best) {
+                best = image;
+                canonical = symmetry;
+            }
+        }
+
+        return canonical;
+    }
+
+    /**
+     * Counts the symmetries which leave a pair of masks unchanged.
+     * @param first The first occupancy mask.
+     * @param second The second occupancy mask.
+     * @return The number of symmetries, from 1 (only the identity) to COUNT.
+     */
+    public static int countInvariant(int first, int second) {
+        int count = 1;
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            if (applyMask(symmetry, first) == first && applyMask(symmetry, second) == second) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,90 @@
+package game.board;
+
+import game.tokens.TokenBank;
+import java.util.SplittableRandom;
+
+/**
+ * The random keys used to hash a {@link Position}. A position's key is the XOR of the keys of its parts, so it can
+ * be updated in constant time as tokens are placed, moved and removed. The keys come from a fixed seed, so the
+ * same position has the same key in every run.
+ */
+public final class Zobrist {
+    /**
+     * The seed the keys are generated from.
+     */
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The key of each player's token on each location, indexed by player ID ordinal and location index.
+     */
+    private static final long[][] TOKEN = new long[2][Position.LOCATION_COUNT];
+
+    /**
+     * The key of each player having a number of tokens in hand, indexed by player ID ordinal and count.
+     */
+    private static final long[][] IN_HAND = new long[2][TokenBank.TOTAL_TOKEN_COUNT + 1];
+
+    /**
+     * The key included when white is to move.
+     */
+    private static final long WHITE_TO_MOVE;
+
+    /**
+     * The key included when the side to move has formed a mill and must remove a token.
+     */
+    private static final long PENDING_REMOVAL;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        for (int player = 0; player < 2; player++) {
+            for (int index = 0; index < Position.LOCATION_COUNT; index++) {
+                TOKEN[player][index] = random.nextLong();
+            }
+
+            for (int count = 0; count <= TokenBank.TOTAL_TOKEN_COUNT; count++) {
+                IN_HAND[player][count] = random.nextLong();
+            }
+        }
+
+        WHITE_TO_MOVE = random.nextLong();
+        PENDING_REMOVAL = random.nextLong();
+    }
+
+    /**
+     * This class only contains the static keys.
+     */
+    private Zobrist() {}
+
+    /**
+     * @param player The player ID ordinal.
+     * @param index The location index.
+     * @return The key of the player's token on the location.
+     */
+    public static long token(int player, int index) {
+        return TOKEN[player][index];
+    }
+
+    /**
+     * @param player The player ID ordinal.
+     * @param count The number of tokens in hand.
+     * @return The key of the player having that many tokens in hand.
+     */
+    public static long inHand(int player, int count) {
+        return IN_HAND[player][count];
+    }
+
+    /**
+     * @return The key included when white is to move.
+     */
+    public static long whiteToMove() {
+        return WHITE_TO_MOVE;
+    }
+
+    /**
+     * @return The key included when a token must be removed.
+     */
+    public static long pendingRemoval() {
+        return PENDING_REMOVAL;
+    }
+}
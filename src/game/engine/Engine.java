@@ -0,0 +1,263 @@
+package game.engine;
+
+import game.board.Position;
+import game.players.PlayerID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A headless game of Nine Men's Morris. The engine owns the rules state: turn order, each player's phase, mills
+ * and win detection. It doesn't depend on Swing, so it can run under java.awt.headless=true, and user interfaces
+ * follow it by registering an {@link EngineListener}.
+ * <p>
+ * A player loses when they have lost seven tokens, or when it is their turn and they have no legal move.
+ */
+public class Engine {
+    /**
+     * The current position. This is changed in place as moves are played and undone.
+     */
+    private final Position position;
+
+    /**
+     * The moves played so far (see {@link Move}), followed by any undone moves which can be redone.
+     */
+    private int[] history = new int[64];
+
+    /**
+     * The number of moves played so far.
+     */
+    private int historySize;
+
+    /**
+     * The number of moves in the history, including undone moves which can be redone.
+     */
+    private int historyLimit;
+
+    /**
+     * The winner of the game, or null if the game isn't over.
+     */
+    private PlayerID winner;
+
+    /**
+     * A scratch array for generating moves.
+     */
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * The listeners following the game.
+     */
+    private final List<EngineListener> listeners = new ArrayList<>();
+
+    /**
+     * Creates a game at the starting position.
+     */
+    public Engine() {
+        this(new Position());
+    }
+
+    /**
+     * Creates a game starting from the given position.
+     * @param start The position to start from. It is copied, so later changes to it don't affect the game.
+     */
+    public Engine(Position start) {
+        this.position = new Position(start);
+        this.updateWinner();
+    }
+
+    /**
+     * Adds a listener to follow the game.
+     * @param listener The listener to add.
+     */
+    public void addListener(EngineListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener The listener to remove.
+     */
+    public void removeListener(EngineListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Gets the current position. It must not be changed directly; copy it to explore moves.
+     * @return The current position.
+     */
+    public Position getPosition() {
+        return this.position;
+    }
+
+    /**
+     * @return The player whose turn it is.
+     */
+    public PlayerID getSideToMove() {
+        return this.position.getSideToMove();
+    }
+
+    /**
+     * Finds which phase a player is in.
+     * @param id The player to check.
+     * @return The player's phase.
+     */
+    public Phase getPhase(PlayerID id) {
+        if (!this.position.placedAll(id)) {
+            return Phase.PLACING;
+        }
+
+        return this.position.canJump(id) ? Phase.FLYING : Phase.MOVING;
+    }
+
+    /**
+     * Generates the legal moves of the side to move.
+     * @param moves The array to write the moves into, with room for at least MoveGenerator.MAX_MOVES moves.
+     * @return The number of moves written, which is 0 if the game is over.
+     */
+    public int generateMoves(int[] moves) {
+        return this.isOver() ? 0 : MoveGenerator.generate(this.position, moves);
+    }
+
+    /**
+     * Checks if the side to move can play a move.
+     * @param move The encoded move.
+     * @return True if the move is legal, false otherwise.
+     */
+    public boolean isLegal(int move) {
+        return !this.isOver() && MoveGenerator.isLegal(this.position, move, this.moves);
+    }
+
+    /**
+     * Plays a move for the side to move and passes the turn. This discards any undone moves.
+     * @param move The encoded move.
+     * @throws IllegalArgumentException Thrown if the move isn't legal in the current position.
+     */
+    public void play(int move) throws IllegalArgumentException {
+        if (!this.isLegal(move)) {
+            throw new IllegalArgumentException("Illegal move " + Move.toString(move) + " in " + this.position);
+        }
+
+        if (this.historySize == this.history.length) {
+            this.history = Arrays.copyOf(this.history, this.history.length * 2);
+        }
+        this.history[this.historySize++] = move;
+        this.historyLimit = this.historySize;
+        this.position.make(move);
+        this.updateWinner();
+        this.firePlayed(move);
+    }
+
+    /**
+     * Takes back the last move played.
+     * @return The encoded move which was taken back, or Move.NULL if no moves have been played.
+     */
+    public int undo() {
+        if (this.historySize == 0) return Move.NULL;
+
+        int move = this.history[--this.historySize];
+        this.position.unmake(move);
+        this.winner = null;
+
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).moveUndone(this, move);
+        }
+
+        return move;
+    }
+
+    /**
+     * Plays the last move taken back by undo again.
+     * @return The encoded move which was played, or Move.NULL if there is no undone move.
+     */
+    public int redo() {
+        if (this.historySize == this.historyLimit) return Move.NULL;
+
+        int move = this.history[this.historySize++];
+        this.position.make(move);
+        this.updateWinner();
+        this.firePlayed(move);
+        return move;
+    }
+
+    /**
+     * @return The number of moves played so far which can be undone.
+     */
+    public int getHistorySize() {
+        return this.historySize;
+    }
+
+    /**
+     * @return The number of undone moves which can be redone.
+     */
+    public int getRedoSize() {
+        return this.historyLimit - this.historySize;
+    }
+
+    /**
+     * Gets a move from the history.
+     * @param index The number of the move, from 0 for the first move played.
+     * @return The encoded move.
+     */
+    public int getMove(int index) {
+        return this.history[index];
+    }
+
+    /**
+     * Starts again from the given position, clearing the move history.
+     * @param start The position to start from. It is copied, so later changes to it don't affect the game.
+     */
+    public void reset(Position start) {
+        for (PlayerID id : PlayerID.values()) {
+            this.position.setPieces(id, start.getOccupancy(id), start.getInHand(id), start.getDead(id));
+        }
+        this.position.setSideToMove(start.getSideToMove());
+        this.position.setPendingRemoval(false);
+        this.historySize = 0;
+        this.historyLimit = 0;
+        this.updateWinner();
+
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).positionReset(this);
+        }
+    }
+
+    /**
+     * @return True if the game is over, false otherwise.
+     */
+    public boolean isOver() {
+        return this.winner != null;
+    }
+
+    /**
+     * @return The ID of the winning player, or null if the game isn't over.
+     */
+    public PlayerID getWinner() {
+        return this.winner;
+    }
+
+    /**
+     * Tells the listeners a move was played, and if it ended the game.
+     * @param move The encoded move.
+     */
+    private void firePlayed(int move) {
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).movePlayed(this, move);
+        }
+
+        if (this.winner != null) {
+            for (int i = 0; i < this.listeners.size(); i++) {
+                this.listeners.get(i).gameEnded(this, this.winner);
+            }
+        }
+    }
+
+    /**
+     * Decides if the side to move has lost, either from losing too many tokens or from having no legal move.
+     */
+    private void updateWinner() {
+        PlayerID side = this.position.getSideToMove();
+        boolean lost = this.position.hasLost(side) || MoveGenerator.generate(this.position, this.moves) == 0;
+        this.winner = lost ? side.opponent() : null;
+    }
+}
@@ -0,0 +1,36 @@
+package game.engine;
+
+import game.players.PlayerID;
+
+/**
+ * A listener for changes to a headless game. All methods do nothing by default, so listeners only override the
+ * events they need.
+ */
+public interface EngineListener {
+    /**
+     * Called after a move has been played.
+     * @param engine The game the move was played in.
+     * @param move The encoded move (see {@link Move}).
+     */
+    default void movePlayed(Engine engine, int move) {}
+
+    /**
+     * Called after a move has been taken back.
+     * @param engine The game the move was taken back in.
+     * @param move The encoded move which was taken back.
+     */
+    default void moveUndone(Engine engine, int move) {}
+
+    /**
+     * Called after the game has been reset to a new position, e.g. when a game is loaded.
+     * @param engine The game which was reset.
+     */
+    default void positionReset(Engine engine) {}
+
+    /**
+     * Called when a move ends the game.
+     * @param engine The game which ended.
+     * @param winner The ID of the winning player.
+     */
+    default void gameEnded(Engine engine, PlayerID winner) {}
+}
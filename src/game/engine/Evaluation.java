@@ -0,0 +1,302 @@
+package game.engine;
+
+import game.board.Position;
+import game.players.PlayerID;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * A static evaluation of positions for the search. Scores are from the point of view of the side to move, so a
+ * positive score means the side to move is ahead.
+ * <p>
+ * The score is a weighted sum of each player's terms: tokens left, mills formed, open twos, blocked tokens and
+ * mobility. Each player's terms are weighted for the phase that player is in. None of them scan the tokens: Position
+ * keeps the material, mills and open twos up to date as moves are made and unmade (see
+ * {@link Position#getOpenTwos(PlayerID)}), and mobility and blocked tokens come from its occupancy masks with a few
+ * shifts, so evaluating a leaf costs about as much as making a move.
+ * <p>
+ * Weights are read from a properties file with one key per phase and term, such as {@code moving.openTwo=15}.
+ * Missing keys keep their default weight. An evaluation never changes once created, so one can be shared by the
+ * threads of a search.
+ */
+public final class Evaluation {
+    /**
+     * The file the weights are read from by default, relative to the working directory.
+     */
+    public static final String DEFAULT_FILE = "evaluation.properties";
+
+    /**
+     * The term for each token a player still has, on the board or in hand.
+     */
+    public static final int TOKEN = 0;
+
+    /**
+     * The term for each mill a player has formed, which can be opened and closed again to capture.
+     */
+    public static final int MILL = 1;
+
+    /**
+     * The term for each line where a player has two tokens and the third location is empty.
+     */
+    public static final int OPEN_TWO = 2;
+
+    /**
+     * The term for each of a player's tokens with no empty neighbour.
+     */
+    public static final int BLOCKED = 3;
+
+    /**
+     * The term for each slide a player could make.
+     */
+    public static final int MOBILITY = 4;
+
+    /**
+     * The number of terms scored for each player.
+     */
+    public static final int TERM_COUNT = 5;
+
+    /**
+     * The number of weights: one for each term in each phase.
+     */
+    public static final int WEIGHT_COUNT = Phase.values().length * TERM_COUNT;
+
+    /**
+     * The largest weight allowed, whether positive or negative. Each player has at most 9 tokens, 6 mills, 9 open
+     * twos (each token is on two lines), 9 blocked tokens and 36 slides, so even with every weight at this size a
+     * position scores less than {@link Search#DECIDED}, and the search never takes an evaluation for a forced result.
+     */
+    public static final int MAX_WEIGHT = Search.DECIDED / (2 * (9 + 6 + 9 + 9 + 36));
+
+    /**
+     * The name of each term in the weights file.
+     */
+    private static final String[] TERM_NAMES = {"token", "mill", "openTwo", "blocked", "mobility"};
+
+    /**
+     * The default weights, indexed by phase then term. Flying tokens can go anywhere, so blocked tokens and
+     * mobility don't count for them.
+     */
+    private static final int[] DEFAULT_WEIGHTS = {
+            100, 25, 10, -2, 1,
+            100, 25, 15, -8, 3,
+            100, 10, 30, 0, 0
+    };
+
+    /**
+     * The weights, indexed by phase ordinal * TERM_COUNT + term.
+     */
+    private final int[] weights;
+
+    /**
+     * Creates an evaluation with the default weights.
+     */
+    public Evaluation() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * Creates an evaluation with the given weights.
+     * @param weights The weights, indexed by phase ordinal * TERM_COUNT + term.
+     * @throws IllegalArgumentException Thrown if there isn't one weight for each term in each phase, or a weight is
+     * larger than MAX_WEIGHT.
+     */
+    public Evaluation(int[] weights) throws IllegalArgumentException {
+        if (weights.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("An evaluation needs " + WEIGHT_COUNT + " weights, not " +
+                    weights.length);
+        }
+
+        for (int weight = 0; weight < WEIGHT_COUNT; weight++) {
+            if (Math.abs(weights[weight]) > MAX_WEIGHT) {
+                throw new IllegalArgumentException("The weight " + getKey(weight) + " must be from " + -MAX_WEIGHT +
+                        " to " + MAX_WEIGHT + ", not " + weights[weight]);
+            }
+        }
+
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Reads the weights of an evaluation from a properties file.
+     * @param file The weights file.
+     * @return The evaluation.
+     * @throws IOException Thrown if the file can't be read, or a weight isn't a number or is larger than MAX_WEIGHT.
+     */
+    public static Evaluation load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            properties.load(reader);
+        }
+
+        int[] weights = DEFAULT_WEIGHTS.clone();
+        for (int weight = 0; weight < WEIGHT_COUNT; weight++) {
+            String value = properties.getProperty(getKey(weight));
+            if (value == null) continue;
+
+            try {
+                weights[weight] = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("The weight " + getKey(weight) + " in " + file + " isn't a number: " + value);
+            }
+        }
+
+        try {
+            return new Evaluation(weights);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + " in " + file);
+        }
+    }
+
+    /**
+     * Reads the weights from the default file if it exists. The file is only read the first time, and the same
+     * evaluation is returned afterwards.
+     * @return The evaluation from the default file, or the default evaluation if there is none or it can't be read.
+     */
+    public static Evaluation getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Holds the evaluation from the default file, which is read when it is first needed.
+     */
+    private static final class DefaultHolder {
+        /**
+         * The evaluation from the default file.
+         */
+        private static final Evaluation DEFAULT = read();
+
+        /**
+         * Reads the default file if it exists.
+         * @return The evaluation from the default file, or the default evaluation if there is none or it can't be
+         * read.
+         */
+        private static Evaluation read() {
+            File file = new File(DEFAULT_FILE);
+            if (file.isFile()) {
+                try {
+                    return load(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            return new Evaluation();
+        }
+    }
+
+    /**
+     * Writes the weights to a properties file, which load reads back as the same evaluation.
+     * @param file The weights file.
+     * @param comment A comment for the top of the file, or null for none.
+     * @throws IOException Thrown if the file can't be written.
+     */
+    public void save(File file, String comment) throws IOException {
+        // Properties.store writes keys in hash order, so the weights are written by hand to keep them in order
+        try (Writer writer = new FileWriter(file)) {
+            if (comment != null) {
+                writer.write("# " + comment + System.lineSeparator());
+            }
+            for (int weight = 0; weight < WEIGHT_COUNT; weight++) {
+                writer.write(getKey(weight) + "=" + this.weights[weight] + System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * @param weight The index of a weight.
+     * @return The key of the weight in a weights file.
+     */
+    private static String getKey(int weight) {
+        Phase phase = Phase.values()[weight / TERM_COUNT];
+        return phase.name().toLowerCase() + "." + TERM_NAMES[weight % TERM_COUNT];
+    }
+
+    /**
+     * @param phase The phase.
+     * @param term The term, such as OPEN_TWO.
+     * @return The weight of the term in the phase.
+     */
+    public int getWeight(Phase phase, int term) {
+        return this.weights[phase.ordinal() * TERM_COUNT + term];
+    }
+
+    /**
+     * @return A copy of the weights, indexed by phase ordinal * TERM_COUNT + term.
+     */
+    public int[] getWeights() {
+        return this.weights.clone();
+    }
+
+    /**
+     * Evaluates a position at the start of a turn.
+     * @param position The position to evaluate.
+     * @return The score of the position for the side to move.
+     */
+    public int evaluate(Position position) {
+        PlayerID side = position.getSideToMove();
+        return this.score(position, side) - this.score(position, side.opponent());
+    }
+
+    /**
+     * Scores the tokens of one player.
+     * @param position The position to score.
+     * @param id The player to score.
+     * @return The player's score.
+     */
+    private int score(Position position, PlayerID id) {
+        int base = getPhase(position, id).ordinal() * TERM_COUNT;
+        return (position.getOnBoard(id) + position.getInHand(id)) * this.weights[base + TOKEN] +
+                Integer.bitCount(position.getFullLines(id)) * this.weights[base + MILL] +
+                position.getOpenTwos(id) * this.weights[base + OPEN_TWO] +
+                position.getBlocked(id) * this.weights[base + BLOCKED] +
+                position.getMobility(id) * this.weights[base + MOBILITY];
+    }
+
+    /**
+     * Finds the terms of a position, so that its score is the sum of each weight times the matching feature. The
+     * side to move's terms count up and the opponent's count down, each under the weights of the player's phase.
+     * @param position The position.
+     * @param features The array to write the features into.
+     * @param offset The index the WEIGHT_COUNT features are written from.
+     */
+    public static void getFeatures(Position position, int[] features, int offset) {
+        Arrays.fill(features, offset, offset + WEIGHT_COUNT, 0);
+        PlayerID side = position.getSideToMove();
+        addFeatures(position, side, 1, features, offset);
+        addFeatures(position, side.opponent(), -1, features, offset);
+    }
+
+    /**
+     * Adds the terms of one player to the features of a position.
+     * @param position The position.
+     * @param id The player.
+     * @param sign 1 for the side to move, -1 for the opponent.
+     * @param features The features.
+     * @param offset The index of the position's first feature.
+     */
+    private static void addFeatures(Position position, PlayerID id, int sign, int[] features, int offset) {
+        int base = offset + getPhase(position, id).ordinal() * TERM_COUNT;
+        features[base + TOKEN] += sign * (position.getOnBoard(id) + position.getInHand(id));
+        features[base + MILL] += sign * Integer.bitCount(position.getFullLines(id));
+        features[base + OPEN_TWO] += sign * position.getOpenTwos(id);
+        features[base + BLOCKED] += sign * position.getBlocked(id);
+        features[base + MOBILITY] += sign * position.getMobility(id);
+    }
+
+    /**
+     * Finds which phase a player is in, as {@link Engine#getPhase(PlayerID)} does.
+     * @param position The position.
+     * @param id The player.
+     * @return The player's phase.
+     */
+    private static Phase getPhase(Position position, PlayerID id) {
+        if (!position.placedAll(id)) return Phase.PLACING;
+        return position.canJump(id) ? Phase.FLYING : Phase.MOVING;
+    }
+}
@@ -0,0 +1,414 @@
+package game.engine;
+
+import game.board.Position;
+import game.players.PlayerID;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A command-line tool which tunes the weights of the {@link Evaluation} from self-play, and writes them to the file
+ * the search bot loads.
+ * <p>
+ * Usage: {@code java game.engine.EvaluationTuner [-threads n] [-games g] [-depth d] [-rounds r] [-seed s] [file]}
+ * <p>
+ * Each round has two steps, both spread over all the threads:
+ * <ol>
+ *     <li>Self-play: games of a fixed-depth search against itself, each from a few random opening moves. Every
+ *     position searched is labelled with the result of its game for the side to move: 1 for a win, 0 for a loss
+ *     and 0.5 for a draw. Games which go on too long are drawn, and positions the search has already found a win
+ *     or loss in are left out.</li>
+ *     <li>Fitting (Texel's method): the weights are fitted to the labels by logistic regression. The evaluation
+ *     is mapped to a win probability by a sigmoid, whose scale is first fitted to the current weights, and the
+ *     mean squared error of the probabilities is minimised by gradient descent. The evaluation is linear in its
+ *     weights (see {@link Evaluation#getFeatures(Position, int[], int)}), so the gradient is exact. Each weight is
+ *     kept within {@link Evaluation#MAX_WEIGHT}, so the search never mistakes a tuned evaluation for a forced
+ *     result.</li>
+ * </ol>
+ * Later rounds play their games with the weights of the round before. The seed fixes the openings, and the searches
+ * are deterministic, so the same options always tune the same weights.
+ */
+public class EvaluationTuner {
+    /**
+     * The number of games played each round by default.
+     */
+    private static final int DEFAULT_GAMES = 1000;
+
+    /**
+     * The self-play search depth used by default.
+     */
+    private static final int DEFAULT_DEPTH = 4;
+
+    /**
+     * The number of random moves at the start of each game, which are not labelled.
+     */
+    private static final int RANDOM_PLIES = 6;
+
+    /**
+     * The number of plies after which a game is drawn.
+     */
+    private static final int MAX_GAME_PLIES = 200;
+
+    /**
+     * The time limit of each self-play search in milliseconds, which only stops a search that would never finish
+     * its depth.
+     */
+    private static final long TIME_LIMIT = 60_000;
+
+    /**
+     * The size of each self-play search's transposition table in megabytes.
+     */
+    private static final int TABLE_SIZE = 4;
+
+    /**
+     * The most gradient descent steps of each fit.
+     */
+    private static final int MAX_STEPS = 5000;
+
+    /**
+     * The step size of gradient descent, in evaluation units.
+     */
+    private static final double LEARNING_RATE = 0.5;
+
+    /**
+     * The number of chunks the labelled positions are split into when fitting, for each thread.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The threads playing the games and fitting the weights.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The number of threads.
+     */
+    private final int threads;
+
+    /**
+     * The self-play search depth.
+     */
+    private final int depth;
+
+    /**
+     * The features of the labelled positions, Evaluation.WEIGHT_COUNT for each position.
+     */
+    private int[] features;
+
+    /**
+     * The label of each position: the result of its game for the side to move.
+     */
+    private double[] results;
+
+    /**
+     * The number of labelled positions.
+     */
+    private int count;
+
+    /**
+     * Creates a tuner.
+     * @param threads The number of threads to play and fit on.
+     * @param depth The self-play search depth.
+     * @throws IllegalArgumentException Thrown if there are no threads or the depth is out of range.
+     */
+    public EvaluationTuner(int threads, int depth) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The tuner needs at least 1 thread, not " + threads);
+        } else if (depth < 1 || depth > Search.MAX_PLY) {
+            throw new IllegalArgumentException("The depth must be from 1 to " + Search.MAX_PLY + ", not " + depth);
+        }
+
+        this.pool = new ForkJoinPool(threads);
+        this.threads = threads;
+        this.depth = depth;
+    }
+
+    /**
+     * Plays self-play games and labels their positions, replacing the positions labelled before.
+     * @param evaluation The evaluation both sides search with.
+     * @param games The number of games.
+     * @param seed The seed of the random openings.
+     */
+    public void play(Evaluation evaluation, int games, long seed) {
+        // Each game gets its own seed up front, so the openings don't depend on which thread plays them
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[games];
+        for (int game = 0; game < games; game++) {
+            seeds[game] = random.nextLong();
+        }
+
+        int[][] gameFeatures = new int[games][];
+        double[][] gameResults = new double[games][];
+        AtomicInteger finished = new AtomicInteger();
+
+        this.run(games, game -> {
+            this.playGame(evaluation, seeds[game], gameFeatures, gameResults, game);
+            int done = finished.incrementAndGet();
+            if (done % 100 == 0) {
+                System.out.println("Played " + done + "/" + games + " games");
+            }
+        });
+
+        this.count = 0;
+        for (double[] labels : gameResults) {
+            this.count += labels.length;
+        }
+
+        this.features = new int[this.count * Evaluation.WEIGHT_COUNT];
+        this.results = new double[this.count];
+        int next = 0;
+        for (int game = 0; game < games; game++) {
+            int size = gameResults[game].length;
+            System.arraycopy(gameFeatures[game], 0, this.features, next * Evaluation.WEIGHT_COUNT,
+                    size * Evaluation.WEIGHT_COUNT);
+            System.arraycopy(gameResults[game], 0, this.results, next, size);
+            next += size;
+        }
+    }
+
+    /**
+     * Plays one self-play game and labels its positions.
+     * @param evaluation The evaluation both sides search with.
+     * @param seed The seed of the random opening.
+     * @param gameFeatures The features of each game's positions, which this game's are stored into.
+     * @param gameResults The labels of each game's positions, which this game's are stored into.
+     * @param game The index of the game.
+     */
+    private void playGame(Evaluation evaluation, long seed, int[][] gameFeatures, double[][] gameResults, int game) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Search search = new Search(new TranspositionTable(TABLE_SIZE));
+        search.setEvaluation(evaluation);
+
+        Position position = new Position();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] features = new int[MAX_GAME_PLIES * Evaluation.WEIGHT_COUNT];
+        PlayerID[] sides = new PlayerID[MAX_GAME_PLIES];
+        int labelled = 0;
+        PlayerID winner = null;
+
+        for (int ply = 0; ply < MAX_GAME_PLIES; ply++) {
+            int count = MoveGenerator.generate(position, moves);
+            if (count == 0) {
+                winner = position.getSideToMove().opponent();
+                break;
+            }
+
+            if (ply < RANDOM_PLIES) {
+                position.make(moves[random.nextInt(count)]);
+                continue;
+            }
+
+            int move = search.findMove(new Position(position), TIME_LIMIT, this.depth);
+
+            // A position the search has already won or lost is decided by tactics the evaluation doesn't see
+            if (Math.abs(search.getScore()) <= Search.DECIDED) {
+                Evaluation.getFeatures(position, features, labelled * Evaluation.WEIGHT_COUNT);
+                sides[labelled++] = position.getSideToMove();
+            }
+            position.make(move);
+        }
+
+        double[] labels = new double[labelled];
+        for (int i = 0; i < labelled; i++) {
+            labels[i] = winner == null ? 0.5 : sides[i] == winner ? 1 : 0;
+        }
+
+        int[] trimmed = new int[labelled * Evaluation.WEIGHT_COUNT];
+        System.arraycopy(features, 0, trimmed, 0, trimmed.length);
+        gameFeatures[game] = trimmed;
+        gameResults[game] = labels;
+    }
+
+    /**
+     * Fits the weights to the labelled positions.
+     * @param start The evaluation to start from.
+     * @return The fitted evaluation.
+     * @throws IllegalStateException Thrown if no positions have been labelled.
+     */
+    public Evaluation fit(Evaluation start) throws IllegalStateException {
+        if (this.count == 0) {
+            throw new IllegalStateException("There are no labelled positions to fit");
+        }
+
+        double[] weights = new double[Evaluation.WEIGHT_COUNT];
+        int[] initial = start.getWeights();
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = initial[i];
+        }
+
+        double scale = this.fitScale(weights);
+        double error = this.computeError(weights, scale, null);
+        System.out.printf("Fitting %d positions: scale %.5f, starting error %.6f%n", this.count, scale, error);
+
+        // Adam keeps the step size even across weights whose features have very different sizes
+        double[] gradient = new double[weights.length];
+        double[] momentum = new double[weights.length];
+        double[] velocity = new double[weights.length];
+        for (int step = 1; step <= MAX_STEPS; step++) {
+            double next = this.computeError(weights, scale, gradient);
+            for (int i = 0; i < weights.length; i++) {
+                momentum[i] = 0.9 * momentum[i] + 0.1 * gradient[i];
+                velocity[i] = 0.999 * velocity[i] + 0.001 * gradient[i] * gradient[i];
+                double corrected = momentum[i] / (1 - Math.pow(0.9, step));
+                double spread = Math.sqrt(velocity[i] / (1 - Math.pow(0.999, step)));
+                weights[i] -= LEARNING_RATE * corrected / (spread + 1e-12);
+
+                // The weights stay within the bound the evaluation accepts, so the file written always loads
+                weights[i] = Math.max(-Evaluation.MAX_WEIGHT, Math.min(Evaluation.MAX_WEIGHT, weights[i]));
+            }
+
+            if (step % 500 == 0) {
+                System.out.printf("Step %d: error %.6f%n", step, next);
+            }
+            error = next;
+        }
+
+        int[] rounded = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            rounded[i] = (int) Math.round(weights[i]);
+        }
+        System.out.printf("Final error %.6f%n", error);
+        return new Evaluation(rounded);
+    }
+
+    /**
+     * Finds the sigmoid scale which best maps the evaluation to the labels, by golden-section search.
+     * @param weights The weights.
+     * @return The scale, which multiplies an evaluation before the logistic function.
+     */
+    private double fitScale(double[] weights) {
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = 1e-5;
+        double high = 0.1;
+
+        while (high - low > 1e-7) {
+            double first = high - ratio * (high - low);
+            double second = low + ratio * (high - low);
+            if (this.computeError(weights, first, null) < this.computeError(weights, second, null)) {
+                high = second;
+            } else {
+                low = first;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * Finds the mean squared error of the win probabilities of the labelled positions, in parallel over chunks of
+     * the positions.
+     * @param weights The weights.
+     * @param scale The sigmoid scale.
+     * @param gradient The array the gradient of the error by each weight is written into, or null to skip it.
+     * @return The mean squared error.
+     */
+    private double computeError(double[] weights, double scale, double[] gradient) {
+        int chunks = this.threads * CHUNKS_PER_THREAD;
+        double[][] sums = new double[chunks][Evaluation.WEIGHT_COUNT + 1];
+
+        this.run(chunks, chunk -> {
+            double[] sum = sums[chunk];
+            int end = (int) ((long) this.count * (chunk + 1) / chunks);
+            for (int position = (int) ((long) this.count * chunk / chunks); position < end; position++) {
+                int base = position * Evaluation.WEIGHT_COUNT;
+                double score = 0;
+                for (int i = 0; i < Evaluation.WEIGHT_COUNT; i++) {
+                    score += weights[i] * this.features[base + i];
+                }
+
+                double probability = 1 / (1 + Math.exp(-scale * score));
+                double difference = probability - this.results[position];
+                sum[Evaluation.WEIGHT_COUNT] += difference * difference;
+
+                if (gradient != null) {
+                    double slope = difference * probability * (1 - probability) * scale;
+                    for (int i = 0; i < Evaluation.WEIGHT_COUNT; i++) {
+                        sum[i] += slope * this.features[base + i];
+                    }
+                }
+            }
+        });
+
+        double error = 0;
+        if (gradient != null) {
+            Arrays.fill(gradient, 0);
+        }
+        for (double[] sum : sums) {
+            error += sum[Evaluation.WEIGHT_COUNT];
+            if (gradient != null) {
+                for (int i = 0; i < Evaluation.WEIGHT_COUNT; i++) {
+                    gradient[i] += 2 * sum[i] / this.count;
+                }
+            }
+        }
+        return error / this.count;
+    }
+
+    /**
+     * Runs a task for every index in a range on the tuner's threads, and waits for them all.
+     * @param count The number of indices.
+     * @param task The task to run.
+     */
+    private void run(int count, IntConsumer task) {
+        try {
+            this.pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while tuning", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Tuning failed", exception.getCause());
+        }
+    }
+
+    /**
+     * Runs the evaluation tuner.
+     * @param arguments Command-line arguments: the options and an optional weights file.
+     * @throws IOException Thrown if the weights can't be read or written.
+     */
+    public static void main(String[] arguments) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int games = DEFAULT_GAMES;
+        int depth = DEFAULT_DEPTH;
+        int rounds = 1;
+        long seed = 1;
+        int argument = 0;
+
+        for (; argument < arguments.length && arguments[argument].startsWith("-"); argument++) {
+            if (arguments[argument].equals("-threads") && argument + 1 < arguments.length) {
+                threads = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-games") && argument + 1 < arguments.length) {
+                games = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-depth") && argument + 1 < arguments.length) {
+                depth = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-rounds") && argument + 1 < arguments.length) {
+                rounds = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-seed") && argument + 1 < arguments.length) {
+                seed = Long.parseLong(arguments[++argument]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arguments[argument]);
+            }
+        }
+
+        // The weights already in the file are the starting point, so tuning can be resumed
+        File file = new File(argument < arguments.length ? arguments[argument] : Evaluation.DEFAULT_FILE);
+        Evaluation evaluation = file.isFile() ? Evaluation.load(file) : new Evaluation();
+
+        long start = System.nanoTime();
+        EvaluationTuner tuner = new EvaluationTuner(threads, depth);
+        for (int round = 0; round < rounds; round++) {
+            System.out.println("Round " + (round + 1) + " of " + rounds);
+            tuner.play(evaluation, games, seed + round);
+            evaluation = tuner.fit(evaluation);
+            evaluation.save(file, "Tuned from " + games + " self-play games at depth " + depth + ", round " +
+                    (round + 1) + " of " + rounds);
+        }
+
+        System.out.printf("Wrote %s in %.1f s%n", file, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,419 @@
+package game.engine;
+
+import game.board.Position;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A Monte Carlo tree search with UCT selection. Each iteration walks down the tree choosing the child with the best
+ * upper confidence bound, grows the tree by one node's children, finishes the game with random moves (a playout),
+ * and adds the result to every node on the way. The move played is the root move visited most.
+ * <p>
+ * The search runs on several threads with root parallelism: each thread grows its own tree from the same root, with
+ * its own random numbers, and the root visit counts of all the trees are added up at the end. The threads share
+ * nothing while searching, so they never wait on each other. Each tree is a fixed pool of nodes in flat arrays,
+ * and playouts use the allocation-free {@link MoveGenerator}, so an iteration allocates nothing.
+ */
+public class MonteCarloSearch {
+    /**
+     * The number of nodes in each thread's tree used by default.
+     */
+    public static final int DEFAULT_TREE_SIZE = 1 << 19;
+
+    /**
+     * The weight of exploring rarely visited moves against playing well visited ones.
+     */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * The number of times a leaf is visited before its children are added to the tree.
+     */
+    private static final int EXPANSION_VISITS = 4;
+
+    /**
+     * The deepest a tree grows.
+     */
+    private static final int MAX_TREE_DEPTH = 256;
+
+    /**
+     * The most moves played in a playout before it is scored as a draw.
+     */
+    private static final int MAX_PLAYOUT = 200;
+
+    /**
+     * The clock is checked whenever the iteration count is a multiple of this plus one.
+     */
+    private static final int CHECK_INTERVAL = 63;
+
+    /**
+     * The tree of each thread. The first runs on the calling thread.
+     */
+    private final Tree[] trees;
+
+    /**
+     * The threads growing the helper trees, or null if there is only one thread.
+     */
+    private final ExecutorService helpers;
+
+    /**
+     * The helper searches of the current move.
+     */
+    private final Future<?>[] running;
+
+    /**
+     * The legal moves at the root of the current search, in the order of every tree's root children.
+     */
+    private final int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * The fraction of points scored by the side to move in the playouts through the move played last.
+     */
+    private double winRate;
+
+    /**
+     * Creates a Monte Carlo tree search.
+     * @param threads The number of threads to search with, including the calling thread.
+     * @param treeSize The number of nodes in each thread's tree.
+     * @param seed The seed of the random numbers used by the playouts.
+     * @throws IllegalArgumentException Thrown if there are no threads or the tree can't hold the root's children.
+     */
+    public MonteCarloSearch(int threads, int treeSize, long seed) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least 1 thread, not " + threads);
+        } else if (treeSize <= MoveGenerator.MAX_MOVES) {
+            throw new IllegalArgumentException("A tree needs more than " + MoveGenerator.MAX_MOVES + " nodes");
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        this.trees = new Tree[threads];
+        for (int i = 0; i < threads; i++) {
+            this.trees[i] = new Tree(treeSize, random.split());
+        }
+        this.running = new Future<?>[threads];
+
+        this.helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "playout-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Finds the best move in a position within a time budget, using all the threads.
+     * @param position The position to search. It is unchanged afterwards.
+     * @param timeMillis The time budget in milliseconds.
+     * @return The move visited most, or Move.NULL if the side to move has no legal moves.
+     */
+    public int findMove(Position position, long timeMillis) {
+        int count = MoveGenerator.generate(position, this.rootMoves);
+        this.winRate = 0.5;
+        if (count == 0) return Move.NULL;
+        if (count == 1) return this.rootMoves[0];
+
+        long deadline = System.nanoTime() + timeMillis * 1_000_000;
+        for (Tree tree : this.trees) {
+            tree.stopped = false;
+        }
+
+        for (int i = 1; i < this.trees.length; i++) {
+            Tree tree = this.trees[i];
+            Position copy = new Position(position);
+            this.running[i] = this.helpers.submit(() -> tree.grow(copy, deadline));
+        }
+
+        this.trees[0].grow(position, deadline);
+
+        for (int i = 1; i < this.trees.length; i++) {
+            this.trees[i].stopped = true;
+        }
+        for (int i = 1; i < this.trees.length; i++) {
+            this.await(i);
+        }
+
+        // The root children of every tree are the root moves in the same order
+        int best = 0;
+        long bestVisits = -1;
+        long bestScore = 0;
+        for (int child = 0; child < count; child++) {
+            long visits = 0;
+            long score = 0;
+            for (Tree tree : this.trees) {
+                visits += tree.visits[1 + child];
+                score += tree.score[1 + child];
+            }
+
+            if (visits > bestVisits) {
+                best = child;
+                bestVisits = visits;
+                bestScore = score;
+            }
+        }
+
+        this.winRate = bestVisits == 0 ? 0.5 : bestScore / (2.0 * bestVisits);
+        return this.rootMoves[best];
+    }
+
+    /**
+     * Waits for a helper tree to finish growing.
+     * @param index The index of the helper.
+     * @throws IllegalStateException Thrown if the helper failed.
+     */
+    private void await(int index) throws IllegalStateException {
+        try {
+            this.running[index].get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Helper search failed", exception.getCause());
+        } finally {
+            this.running[index] = null;
+        }
+    }
+
+    /**
+     * Stops a running search as soon as possible. This may be called from another thread.
+     */
+    public void stop() {
+        for (Tree tree : this.trees) {
+            tree.stopped = true;
+        }
+    }
+
+    /**
+     * Stops the helper threads. The search can't be used afterwards.
+     */
+    public void shutdown() {
+        this.stop();
+        if (this.helpers != null) {
+            this.helpers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The number of threads the search uses.
+     */
+    public int getThreads() {
+        return this.trees.length;
+    }
+
+    /**
+     * @return The total number of playouts by all the threads in the last search.
+     */
+    public long getIterations() {
+        long iterations = 0;
+        for (Tree tree : this.trees) {
+            iterations += tree.iterations;
+        }
+        return iterations;
+    }
+
+    /**
+     * @return The fraction of points, from 0 to 1, the side to move scored in the playouts of the move played last.
+     */
+    public double getWinRate() {
+        return this.winRate;
+    }
+
+    /**
+     * One thread's search tree. Node 0 is the root, and the children of a node are stored next to each other.
+     */
+    private static class Tree {
+        /**
+         * The move leading to each node.
+         */
+        private final int[] move;
+
+        /**
+         * The index of each node's first child, valid if it has children.
+         */
+        private final int[] firstChild;
+
+        /**
+         * The number of children of each node, 0 until the node is expanded.
+         */
+        private final int[] childCount;
+
+        /**
+         * The number of playouts through each node.
+         */
+        private final int[] visits;
+
+        /**
+         * The points scored through each node by the player who made its move: 2 for a win and 1 for a draw.
+         */
+        private final int[] score;
+
+        /**
+         * The number of nodes in use.
+         */
+        private int size;
+
+        /**
+         * The nodes visited by the current iteration, from the root.
+         */
+        private final int[] path = new int[MAX_TREE_DEPTH + 1];
+
+        /**
+         * The moves made by the current iteration, so they can be taken back.
+         */
+        private final int[] line = new int[MAX_TREE_DEPTH + MAX_PLAYOUT];
+
+        /**
+         * A scratch array for generating moves.
+         */
+        private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+        /**
+         * The random numbers used to choose playout moves.
+         */
+        private final SplittableRandom random;
+
+        /**
+         * True once the tree should stop growing.
+         */
+        private volatile boolean stopped;
+
+        /**
+         * The number of playouts in the last search.
+         */
+        private long iterations;
+
+        /**
+         * Creates an empty tree.
+         * @param capacity The number of nodes in the tree.
+         * @param random The random numbers used to choose playout moves.
+         */
+        private Tree(int capacity, SplittableRandom random) {
+            this.move = new int[capacity];
+            this.firstChild = new int[capacity];
+            this.childCount = new int[capacity];
+            this.visits = new int[capacity];
+            this.score = new int[capacity];
+            this.random = random;
+        }
+
+        /**
+         * Grows a new tree from a position until the deadline or a stop request.
+         * @param root The position to search. It is unchanged afterwards.
+         * @param deadline The time in nanoseconds when the search must stop.
+         */
+        private void grow(Position root, long deadline) {
+            this.size = 1;
+            this.childCount[0] = 0;
+            this.visits[0] = 0;
+            this.iterations = 0;
+
+            // The root is expanded first, so every tree's root children are in move generator order
+            this.expand(0, MoveGenerator.generate(root, this.moves));
+
+            while (!this.stopped) {
+                this.iterate(root);
+                if ((++this.iterations & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Runs one iteration: selection, expansion, playout and backpropagation.
+         * @param position The root position. It is unchanged afterwards.
+         */
+        private void iterate(Position position) {
+            int node = 0;
+            int depth = 0;
+            this.path[0] = 0;
+
+            while (this.childCount[node] > 0 && depth < MAX_TREE_DEPTH) {
+                node = this.select(node);
+                position.make(this.move[node]);
+                this.path[++depth] = node;
+            }
+
+            // A leaf visited often enough gets its children, and the playout starts from one of them
+            int count = MoveGenerator.generate(position, this.moves);
+            if (count > 0 && this.visits[node] >= EXPANSION_VISITS && depth < MAX_TREE_DEPTH &&
+                    this.size + count <= this.move.length) {
+                this.expand(node, count);
+                node = this.firstChild[node] + this.random.nextInt(count);
+                position.make(this.move[node]);
+                this.path[++depth] = node;
+            }
+
+            int playoutLength = 0;
+            int winner = -1;
+            while (playoutLength < MAX_PLAYOUT) {
+                count = MoveGenerator.generate(position, this.moves);
+                if (count == 0) {
+                    winner = position.getSideToMove().opponent().ordinal();
+                    break;
+                }
+
+                int move = this.moves[this.random.nextInt(count)];
+                position.make(move);
+                this.line[playoutLength++] = move;
+            }
+
+            while (playoutLength > 0) {
+                position.unmake(this.line[--playoutLength]);
+            }
+
+            // Each node scores for the player who made its move, who is to move again once it is taken back
+            for (; depth > 0; depth--) {
+                node = this.path[depth];
+                position.unmake(this.move[node]);
+                int mover = position.getSideToMove().ordinal();
+                this.visits[node]++;
+                this.score[node] += winner == -1 ? 1 : winner == mover ? 2 : 0;
+            }
+            this.visits[0]++;
+        }
+
+        /**
+         * Chooses the child with the best upper confidence bound. Unvisited children are chosen first.
+         * @param node The node to choose a child of.
+         * @return The index of the chosen child.
+         */
+        private int select(int node) {
+            int first = this.firstChild[node];
+            int last = first + this.childCount[node];
+            double logVisits = Math.log(this.visits[node]);
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int best = first;
+
+            for (int child = first; child < last; child++) {
+                int visits = this.visits[child];
+                if (visits == 0) return child;
+
+                double value = this.score[child] / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+        /**
+         * Adds the children of a node, one for each of the moves in the scratch array.
+         * @param node The node to expand.
+         * @param count The number of moves.
+         */
+        private void expand(int node, int count) {
+            this.firstChild[node] = this.size;
+            this.childCount[node] = count;
+
+            for (int i = 0; i < count; i++) {
+                int child = this.size++;
+                this.move[child] = this.moves[i];
+                this.childCount[child] = 0;
+                this.visits[child] = 0;
+                this.score[child] = 0;
+            }
+        }
+    }
+}
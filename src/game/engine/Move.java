@@ -0,0 +1,147 @@
+package game.engine;
+
+import game.board.Position;
+import game.board.Symmetry;
+
+/**
+ * Encodes a whole turn as a single int, so moves can be stored and passed around without allocating.
+ * A move packs three location indices (see {@link Position}) into 5 bits each: the destination in bits 0-4,
+ * the origin in bits 5-9 and the removed opponent token in bits 10-14. The origin is {@link #NONE} when a token is
+ * placed from the hand, and the removed token is {@link #NONE} when the move doesn't form a mill.
+ */
+public final class Move {
+    /**
+     * The index used for an origin or removed token that doesn't exist.
+     */
+    public static final int NONE = 31;
+
+    /**
+     * A value that is never a valid move, used to mark the absence of a move.
+     */
+    public static final int NULL = -1;
+
+    /**
+     * The bit mask of a single location field.
+     */
+    private static final int FIELD_MASK = 0x1F;
+
+    /**
+     * The bit offset of the origin field.
+     */
+    private static final int FROM_SHIFT = 5;
+
+    /**
+     * The bit offset of the removed token field.
+     */
+    private static final int CAPTURED_SHIFT = 10;
+
+    /**
+     * This class only contains static helpers.
+     */
+    private Move() {}
+
+    /**
+     * Encodes a move without a removal.
+     * @param from The index of the location the token moves from, or NONE to place a token from the hand.
+     * @param to The index of the destination location.
+     * @return The encoded move.
+     */
+    public static int of(int from, int to) {
+        return to | from << FROM_SHIFT | NONE << CAPTURED_SHIFT;
+    }
+
+    /**
+     * Encodes a move which places a token from the hand.
+     * @param to The index of the destination location.
+     * @return The encoded move.
+     */
+    public static int place(int to) {
+        return of(NONE, to);
+    }
+
+    /**
+     * Adds a removal to a move which forms a mill.
+     * @param move The encoded move, without a removal.
+     * @param captured The index of the location of the opponent's token to remove.
+     * @return The encoded move with the removal.
+     */
+    public static int withCapture(int move, int captured) {
+        return move & ~(FIELD_MASK << CAPTURED_SHIFT) | captured << CAPTURED_SHIFT;
+    }
+
+    /**
+     * @param move The encoded move.
+     * @return The index of the location the token moves from, or NONE if the token is placed from the hand.
+     */
+    public static int getFrom(int move) {
+        return move >>> FROM_SHIFT & FIELD_MASK;
+    }
+
+    /**
+     * @param move The encoded move.
+     * @return The index of the destination location.
+     */
+    public static int getTo(int move) {
+        return move & FIELD_MASK;
+    }
+
+    /**
+     * @param move The encoded move.
+     * @return The index of the location of the removed opponent token, or NONE if no token is removed.
+     */
+    public static int getCaptured(int move) {
+        return move >>> CAPTURED_SHIFT & FIELD_MASK;
+    }
+
+    /**
+     * @param move The encoded move.
+     * @return True if the move places a token from the hand, false if it moves a token on the board.
+     */
+    public static boolean isPlacement(int move) {
+        return getFrom(move) == NONE;
+    }
+
+    /**
+     * @param move The encoded move.
+     * @return True if the move removes an opponent token, false otherwise.
+     */
+    public static boolean isCapture(int move) {
+        return getCaptured(move) != NONE;
+    }
+
+    /**
+     * Maps a move onto a symmetric board.
+     * @param move The encoded move.
+     * @param symmetry The symmetry (see {@link Symmetry}).
+     * @return The move's image, which plays the same move in the symmetric position.
+     */
+    public static int transform(int move, int symmetry) {
+        if (move == NULL) return NULL;
+
+        int from = getFrom(move);
+        int captured = getCaptured(move);
+        return Symmetry.apply(symmetry, getTo(move)) |
+                (from == NONE ? NONE : Symmetry.apply(symmetry, from)) << FROM_SHIFT |
+                (captured == NONE ? NONE : Symmetry.apply(symmetry, captured)) << CAPTURED_SHIFT;
+    }
+
+    /**
+     * Describes a move for logs and tools, e.g. "-5" for a placement or "3-4x17" for a slide with a removal.
+     * @param move The encoded move.
+     * @return The move description.
+     */
+    public static String toString(int move) {
+        if (move == NULL) return "none";
+
+        StringBuilder output = new StringBuilder();
+        if (!isPlacement(move)) {
+            output.append(getFrom(move));
+        }
+        output.append('-').append(getTo(move));
+        if (isCapture(move)) {
+            output.append('x').append(getCaptured(move));
+        }
+
+        return output.toString();
+    }
+}
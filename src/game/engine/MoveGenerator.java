@@ -0,0 +1,117 @@
+package game.engine;
+
+import game.board.Adjacency;
+import game.board.Mills;
+import game.board.Position;
+import game.players.PlayerID;
+
+/**
+ * Generates the legal moves of a position (see {@link Move}), following the same rules as the game actions:
+ * a player places tokens while they have any in hand, then slides them to adjacent locations, and jumps them to any
+ * empty location once they have fewer than four on the board. A move which closes a mill is generated once for
+ * every opponent token it may remove. The moves are written into an array supplied by the caller, so generating
+ * them allocates nothing.
+ */
+public final class MoveGenerator {
+    /**
+     * The most moves any position can have: three tokens jumping to any of 21 empty locations, each closing a mill
+     * that can remove any of nine opponent tokens.
+     */
+    public static final int MAX_MOVES = 3 * 21 * 9;
+
+    /**
+     * This class only contains static helpers.
+     */
+    private MoveGenerator() {}
+
+    /**
+     * Generates the legal moves of a position into the start of an array.
+     * @param position The position at the start of a turn.
+     * @param moves The array to write the moves into, with room for at least MAX_MOVES moves.
+     * @return The number of moves written, which is 0 if the side to move has lost.
+     */
+    public static int generate(Position position, int[] moves) {
+        return generate(position, moves, 0);
+    }
+
+    /**
+     * Generates the legal moves of a position into an array, starting at the given offset. This lets a search
+     * keep the moves of every ply in one shared array.
+     * @param position The position at the start of a turn.
+     * @param moves The array to write the moves into, with room for at least MAX_MOVES moves after the offset.
+     * @param offset The index of the first move to write.
+     * @return The number of moves written, which is 0 if the side to move has lost.
+     */
+    public static int generate(Position position, int[] moves, int offset) {
+        PlayerID side = position.getSideToMove();
+        if (position.hasLost(side)) return 0;
+
+        int own = position.getOccupancy(side);
+        int removable = position.getRemovable(side.opponent());
+        int empty = position.getEmpty();
+        int count = offset;
+
+        if (!position.placedAll(side)) {
+            for (int targets = empty; targets != 0; targets &= targets - 1) {
+                int to = Integer.numberOfTrailingZeros(targets);
+                count = add(moves, count, Move.NONE, to, own | 1 << to, removable);
+            }
+        } else {
+            boolean canJump = position.canJump(side);
+
+            for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+                int from = Integer.numberOfTrailingZeros(pieces);
+                int targets = canJump ? empty : Adjacency.getFreeNeighbours(from, ~empty);
+
+                for (; targets != 0; targets &= targets - 1) {
+                    int to = Integer.numberOfTrailingZeros(targets);
+                    count = add(moves, count, from, to, own ^ (1 << from | 1 << to), removable);
+                }
+            }
+        }
+
+        return count - offset;
+    }
+
+    /**
+     * Writes a move, once per removable opponent token if the move closes a mill.
+     * @param moves The array to write the moves into.
+     * @param count The index of the next move to write.
+     * @param from The origin of the move, or Move.NONE for a placement.
+     * @param to The destination of the move.
+     * @param after The occupancy mask of the moving player after the move.
+     * @param removable The mask of the opponent tokens which can be removed.
+     * @return The index of the next move to write after this one.
+     */
+    private static int add(int[] moves, int count, int from, int to, int after, int removable) {
+        int move = Move.of(from, to);
+
+        if (Mills.getMills(after, to) == 0 || removable == 0) {
+            moves[count] = move;
+            return count + 1;
+        }
+
+        for (; removable != 0; removable &= removable - 1) {
+            moves[count++] = Move.withCapture(move, Integer.numberOfTrailingZeros(removable));
+        }
+
+        return count;
+    }
+
+    /**
+     * Checks if a move is legal in a position.
+     * @param position The position at the start of a turn.
+     * @param move The encoded move.
+     * @param buffer A scratch array with room for at least MAX_MOVES moves.
+     * @return True if the move is one of the position's legal moves, false otherwise.
+     */
+    public static boolean isLegal(Position position, int move, int[] buffer) {
+        int count = generate(position, buffer);
+
+        for (int i = 0; i < count; i++) {
+            if (buffer[i] == move) return true;
+        }
+
+        return false;
+    }
+}
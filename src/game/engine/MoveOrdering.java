@@ -0,0 +1,169 @@
+package game.engine;
+
+import game.board.Mills;
+import game.board.Position;
+
+import java.util.Arrays;
+
+/**
+ * Orders the moves of each search node so the move most likely to cause a cutoff is tried first. Moves are tried in
+ * this order: moves closing a mill, the best move stored in the transposition table, the two killer moves of the
+ * ply (quiet moves which caused a cutoff in a sibling node), moves blocking an opponent's mill, and then the other
+ * moves by their history score (how often a move with the same origin and destination caused a cutoff).
+ * <p>
+ * The moves are picked one at a time, so a node which is cut off early never sorts the rest of its moves.
+ */
+public class MoveOrdering {
+    /**
+     * The ordering score of a move closing a mill.
+     */
+    private static final int CAPTURE = 4_000_000;
+
+    /**
+     * The ordering score of the transposition table move, which is added to a capture's score.
+     */
+    private static final int TABLE_MOVE = 3_000_000;
+
+    /**
+     * The ordering score of the first killer move. The second killer scores one less.
+     */
+    private static final int KILLER = 2_000_000;
+
+    /**
+     * The ordering score of a move blocking a mill, which is added to the history score.
+     */
+    private static final int BLOCK = 1_000_000;
+
+    /**
+     * The history score at which all history scores are halved, so they stay below BLOCK.
+     */
+    private static final int HISTORY_LIMIT = 500_000;
+
+    /**
+     * The ordering score of each move, in the same slots as the search's moves.
+     */
+    private final int[] scores = new int[Search.MAX_PLY * MoveGenerator.MAX_MOVES];
+
+    /**
+     * The two killer moves of each ply, or Move.NULL.
+     */
+    private final int[] killers = new int[Search.MAX_PLY * 2];
+
+    /**
+     * The history score of each origin and destination, indexed by from * 32 + to.
+     */
+    private final int[] history = new int[32 * 32];
+
+    /**
+     * Creates an empty move ordering.
+     */
+    public MoveOrdering() {
+        Arrays.fill(this.killers, Move.NULL);
+    }
+
+    /**
+     * Prepares for a new search. The killers belong to the old root and are cleared, and the history is aged.
+     */
+    public void newSearch() {
+        Arrays.fill(this.killers, Move.NULL);
+        for (int i = 0; i < this.history.length; i++) {
+            this.history[i] >>= 1;
+        }
+    }
+
+    /**
+     * Scores the moves of a node.
+     * @param position The node's position.
+     * @param moves The array holding the moves.
+     * @param offset The index of the node's first move.
+     * @param count The number of moves.
+     * @param tableMove The best move from the transposition table, or Move.NULL if there is none.
+     * @param ply The number of moves made from the root.
+     */
+    public void score(Position position, int[] moves, int offset, int count, int tableMove, int ply) {
+        int threats = position.getOccupancy(position.getSideToMove().opponent());
+        int empty = position.getEmpty();
+        int firstKiller = this.killers[ply * 2];
+        int secondKiller = this.killers[ply * 2 + 1];
+
+        for (int i = offset; i < offset + count; i++) {
+            int move = moves[i];
+            int score;
+
+            if (Move.isCapture(move)) {
+                score = CAPTURE;
+            } else if (move == firstKiller) {
+                score = KILLER;
+            } else if (move == secondKiller) {
+                score = KILLER - 1;
+            } else {
+                int to = Move.getTo(move);
+                score = this.history[Move.getFrom(move) * 32 + to];
+                if (blocks(threats, empty, to)) {
+                    score += BLOCK;
+                }
+            }
+
+            this.scores[i] = move == tableMove ? score + TABLE_MOVE : score;
+        }
+    }
+
+    /**
+     * Checks if moving to a location stops the opponent closing a mill there.
+     * @param opponent The opponent's occupancy mask.
+     * @param empty The mask of empty locations.
+     * @param to The destination of the move.
+     * @return True if a line through the destination has two opponent tokens and is otherwise empty.
+     */
+    private static boolean blocks(int opponent, int empty, int to) {
+        int first = Mills.getFirstLine(to);
+        int second = Mills.getSecondLine(to);
+        return Integer.bitCount(opponent & first) == 2 && (empty & first) != 0 ||
+                Integer.bitCount(opponent & second) == 2 && (empty & second) != 0;
+    }
+
+    /**
+     * Brings the best remaining move of a node to the given index.
+     * @param moves The array holding the moves.
+     * @param index The index of the next move to try.
+     * @param end The index after the node's last move.
+     * @return The move to try next.
+     */
+    public int next(int[] moves, int index, int end) {
+        int best = index;
+        for (int i = index + 1; i < end; i++) {
+            if (this.scores[i] > this.scores[best]) {
+                best = i;
+            }
+        }
+
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        this.scores[best] = this.scores[index];
+        return move;
+    }
+
+    /**
+     * Records a move which caused a cutoff, so it is tried earlier in later nodes.
+     * @param move The move.
+     * @param depth The depth left at the node, which weights the history score.
+     * @param ply The number of moves made from the root.
+     */
+    public void cutoff(int move, int depth, int ply) {
+        if (Move.isCapture(move)) return;
+
+        if (this.killers[ply * 2] != move) {
+            this.killers[ply * 2 + 1] = this.killers[ply * 2];
+            this.killers[ply * 2] = move;
+        }
+
+        int index = Move.getFrom(move) * 32 + Move.getTo(move);
+        this.history[index] += depth * depth;
+        if (this.history[index] > HISTORY_LIMIT) {
+            for (int i = 0; i < this.history.length; i++) {
+                this.history[i] >>= 1;
+            }
+        }
+    }
+}
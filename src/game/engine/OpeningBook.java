@@ -0,0 +1,154 @@
+package game.engine;
+
+import game.board.Position;
+import game.board.Symmetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * An opening book for the placement phase: good moves for the positions near the start of the game, built offline by
+ * {@link OpeningBookBuilder} and read here through a memory-mapped file, so a probe is a binary search over the
+ * file's pages with no loading or parsing.
+ * <p>
+ * Positions are keyed by their canonical key (see {@link Position#getCanonicalKey()}), so the book holds one entry
+ * for each class of symmetric positions, and its moves are stored as played in the canonical position. The file is
+ * a header (a magic number and the entry count) followed by the entries in increasing order of key. Each entry is
+ * 12 bytes: the key, the move and the move's weight. A position with several good moves has one entry for each,
+ * and a move is chosen at random in proportion to its weight, so the bot doesn't always play the same game.
+ */
+public class OpeningBook {
+    /**
+     * The file the book is read from by default, relative to the working directory.
+     */
+    public static final String DEFAULT_FILE = "opening.book";
+
+    /**
+     * The number at the start of every book file.
+     */
+    static final int MAGIC = 0x4E4D4231;
+
+    /**
+     * The size of the file header in bytes.
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * The size of an entry in bytes.
+     */
+    static final int ENTRY_SIZE = 12;
+
+    /**
+     * The mapped file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The number of entries in the book.
+     */
+    private final int count;
+
+    /**
+     * Maps a book file.
+     * @param file The book file.
+     * @throws IOException Thrown if the file can't be mapped or isn't a book.
+     */
+    public OpeningBook(File file) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (this.buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " isn't an opening book");
+        }
+
+        this.count = this.buffer.getInt(4);
+        if (this.buffer.capacity() != HEADER_SIZE + (long) this.count * ENTRY_SIZE) {
+            throw new IOException("Opening book " + file + " should have " + this.count + " entries");
+        }
+    }
+
+    /**
+     * Chooses a book move for a position.
+     * @param position The position.
+     * @param random The random numbers used to choose between the position's moves.
+     * @return A move weighted by how good it is, or Move.NULL if the position isn't in the book.
+     */
+    public int probe(Position position, SplittableRandom random) {
+        long key = position.getCanonicalKey();
+        int first = this.find(key);
+        if (first == this.count || this.getKey(first) != key) return Move.NULL;
+
+        int end = first;
+        int total = 0;
+        while (end < this.count && this.getKey(end) == key) {
+            total += this.getWeight(end++);
+        }
+
+        // Walk the entries until the random number falls inside one's weight
+        int choice = random.nextInt(total);
+        int entry = first;
+        while (choice >= this.getWeight(entry)) {
+            choice -= this.getWeight(entry++);
+        }
+
+        // The move was stored for the canonical position, so it is mapped back onto this one
+        int symmetry = position.getCanonicalSymmetry();
+        return Move.transform(this.getMove(entry), Symmetry.inverse(symmetry));
+    }
+
+    /**
+     * Finds the first entry whose key isn't less than the given key.
+     * @param key The key.
+     * @return The index of the entry, or the entry count if every key is less.
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = this.count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.getKey(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param entry The index of an entry.
+     * @return The entry's canonical position key.
+     */
+    private long getKey(int entry) {
+        return this.buffer.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    /**
+     * @param entry The index of an entry.
+     * @return The entry's move, as played in the canonical position.
+     */
+    private int getMove(int entry) {
+        return this.buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    /**
+     * @param entry The index of an entry.
+     * @return The entry's weight, at least 1.
+     */
+    private int getWeight(int entry) {
+        return this.buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+    /**
+     * @return The number of entries in the book.
+     */
+    public int size() {
+        return this.count;
+    }
+}
@@ -0,0 +1,270 @@
+package game.engine;
+
+import game.board.Position;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A command-line tool which builds an {@link OpeningBook} for the placement phase.
+ * <p>
+ * Usage: {@code java game.engine.OpeningBookBuilder [-depth d] [-margin m] <plies> [file]}
+ * <p>
+ * Starting from the empty board, every move of a position is scored by a fixed-depth search. The moves scoring
+ * within the margin of the best go into the book, weighted by how close they are to it, and the builder continues
+ * from each of them until the given number of plies or the end of the placement phase. Symmetric positions are
+ * only expanded once, and the searches are deterministic, so the same options always build the same book.
+ */
+public class OpeningBookBuilder {
+    /**
+     * The search depth used by default.
+     */
+    private static final int DEFAULT_DEPTH = 6;
+
+    /**
+     * The score margin used by default, in evaluation units.
+     */
+    private static final int DEFAULT_MARGIN = 10;
+
+    /**
+     * The time limit of each search in milliseconds, which only stops a search that would never finish its depth.
+     */
+    private static final long TIME_LIMIT = 600_000;
+
+    /**
+     * The search scoring the moves.
+     */
+    private final Search search = new Search();
+
+    /**
+     * The depth each move is searched to, counting the move itself.
+     */
+    private final int depth;
+
+    /**
+     * The most a book move may score below the best move of its position.
+     */
+    private final int margin;
+
+    /**
+     * The score of each position searched, for the side to move, by canonical key.
+     */
+    private final Map<Long, Integer> scores = new HashMap<>();
+
+    /**
+     * The canonical keys of the positions already expanded.
+     */
+    private final Set<Long> expanded = new HashSet<>();
+
+    /**
+     * The book entries found so far.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * A scratch array for checking if a position has moves.
+     */
+    private final int[] scratch = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * Creates a builder.
+     * @param depth The depth each move is searched to, counting the move itself.
+     * @param margin The most a book move may score below the best move of its position.
+     * @throws IllegalArgumentException Thrown if the depth or margin is out of range.
+     */
+    public OpeningBookBuilder(int depth, int margin) throws IllegalArgumentException {
+        if (depth < 2 || depth > Search.MAX_PLY) {
+            throw new IllegalArgumentException("The depth must be from 2 to " + Search.MAX_PLY + ", not " + depth);
+        } else if (margin < 0 || margin >= 0xFFFF) {
+            throw new IllegalArgumentException("The margin must be from 0 to " + (0xFFFF - 1) + ", not " + margin);
+        }
+
+        this.depth = depth;
+        this.margin = margin;
+    }
+
+    /**
+     * One move of the book.
+     */
+    private static class Entry {
+        /**
+         * The canonical key of the position.
+         */
+        private final long key;
+
+        /**
+         * The move, as played in the canonical position.
+         */
+        private final int move;
+
+        /**
+         * The move's weight.
+         */
+        private final int weight;
+
+        /**
+         * Creates an entry.
+         * @param key The canonical key of the position.
+         * @param move The move, as played in the canonical position.
+         * @param weight The move's weight.
+         */
+        private Entry(long key, int move, int weight) {
+            this.key = key;
+            this.move = move;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Adds the book moves of the positions up to a number of plies from the start, one ply at a time, so each
+     * position is expanded the first time it can be reached.
+     * @param plies The number of plies.
+     */
+    public void build(int plies) {
+        List<Position> frontier = new ArrayList<>();
+        frontier.add(new Position());
+
+        for (int ply = 0; ply < plies && !frontier.isEmpty(); ply++) {
+            List<Position> next = new ArrayList<>();
+            for (Position position : frontier) {
+                this.expand(position, next);
+            }
+
+            System.out.println("Ply " + (ply + 1) + ": expanded " + this.expanded.size() + " positions, " +
+                    this.entries.size() + " book moves");
+            frontier = next;
+        }
+    }
+
+    /**
+     * Adds the book moves of a position.
+     * @param position The position. It is unchanged afterwards.
+     * @param next The list the positions after the book moves are added to.
+     */
+    private void expand(Position position, List<Position> next) {
+        if (position.getInHand(position.getSideToMove()) == 0) return;
+
+        long key = position.getCanonicalKey();
+        if (!this.expanded.add(key)) return;
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(position, moves);
+        int[] moveScores = new int[count];
+        int best = -Search.WIN;
+
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            moveScores[i] = -this.score(position);
+            position.unmake(moves[i]);
+            best = Math.max(best, moveScores[i]);
+        }
+
+        // Moves to symmetric positions are the same move, so only one of them goes into the book
+        int symmetry = position.getCanonicalSymmetry();
+        Set<Long> children = new HashSet<>();
+
+        for (int i = 0; i < count; i++) {
+            int loss = best - moveScores[i];
+            if (loss > this.margin) continue;
+
+            position.make(moves[i]);
+            if (children.add(position.getCanonicalKey())) {
+                this.entries.add(new Entry(key, Move.transform(moves[i], symmetry), this.margin - loss + 1));
+                next.add(new Position(position));
+            }
+            position.unmake(moves[i]);
+        }
+    }
+
+    /**
+     * Scores a position with a search, or from the positions already searched.
+     * @param position The position. It is unchanged afterwards.
+     * @return The score for the side to move.
+     */
+    private int score(Position position) {
+        long key = position.getCanonicalKey();
+        Integer known = this.scores.get(key);
+        if (known != null) return known;
+
+        int score;
+        if (MoveGenerator.generate(position, this.scratch) == 0) {
+            score = -Search.WIN;
+        } else {
+            this.search.findMove(position, TIME_LIMIT, this.depth - 1);
+            score = this.search.getScore();
+        }
+
+        this.scores.put(key, score);
+        return score;
+    }
+
+    /**
+     * Writes the book moves found so far.
+     * @param file The book file.
+     * @throws IOException Thrown if the file can't be written.
+     */
+    public void write(File file) throws IOException {
+        this.entries.sort(Comparator.comparingLong(entry -> entry.key));
+        File partial = new File(file.getPath() + ".part");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)))) {
+            output.writeInt(OpeningBook.MAGIC);
+            output.writeInt(this.entries.size());
+            for (Entry entry : this.entries) {
+                output.writeLong(entry.key);
+                output.writeShort(entry.move);
+                output.writeShort(entry.weight);
+            }
+        }
+
+        if (file.exists() && !file.delete() || !partial.renameTo(file)) {
+            throw new IOException("Couldn't rename " + partial + " to " + file);
+        }
+    }
+
+    /**
+     * Runs the opening book builder.
+     * @param arguments Command-line arguments: the options, the number of plies and an optional file.
+     * @throws IOException Thrown if the book can't be written.
+     */
+    public static void main(String[] arguments) throws IOException {
+        int depth = DEFAULT_DEPTH;
+        int margin = DEFAULT_MARGIN;
+        int argument = 0;
+
+        for (; argument < arguments.length && arguments[argument].startsWith("-"); argument++) {
+            if (arguments[argument].equals("-depth") && argument + 1 < arguments.length) {
+                depth = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-margin") && argument + 1 < arguments.length) {
+                margin = Integer.parseInt(arguments[++argument]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arguments[argument]);
+            }
+        }
+
+        if (argument >= arguments.length) {
+            System.out.println("Usage: java game.engine.OpeningBookBuilder [-depth d] [-margin m] <plies> [file]");
+            return;
+        }
+
+        int plies = Integer.parseInt(arguments[argument++]);
+        File file = new File(argument < arguments.length ? arguments[argument] : OpeningBook.DEFAULT_FILE);
+
+        long start = System.nanoTime();
+        OpeningBookBuilder builder = new OpeningBookBuilder(depth, margin);
+        builder.build(plies);
+        builder.write(file);
+        System.out.printf("Wrote %d book moves for %d positions to %s in %.1f s%n", builder.entries.size(),
+                builder.expanded.size(), file, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,383 @@
+package game.engine;
+
+import game.board.Position;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A search which runs on several threads at once (Lazy SMP). Every thread runs its own {@link Search} of the same
+ * position, and they share one lock-free transposition table, so each thread mostly finds the results the others
+ * have already stored and they spread out over different parts of the tree. Every thread finishes depth 1 first, so
+ * it always has a move, and then half of the helper threads skip a depth to spread them further.
+ * <p>
+ * The calling thread runs the main search, and the helpers run on a pool of daemon threads kept between moves.
+ * The move played is the best move of whichever thread finished the deepest depth, unless the main search has
+ * already found a forced result.
+ * <p>
+ * Usage as a scaling benchmark: {@code java game.engine.ParallelSearch <max threads> <milliseconds per search>}
+ */
+public class ParallelSearch {
+    /**
+     * The number of positions searched by the benchmark for each thread count.
+     */
+    private static final int BENCH_POSITIONS = 8;
+
+    /**
+     * The transposition table shared by all the threads.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The search of each thread. The first runs on the calling thread.
+     */
+    private final Search[] searches;
+
+    /**
+     * The threads running the helper searches, or null if there is only one thread.
+     */
+    private final ExecutorService helpers;
+
+    /**
+     * The helper searches of the current move.
+     */
+    private final Future<?>[] running;
+
+    /**
+     * The search whose move was played last, which holds its depth and score.
+     */
+    private Search chosen;
+
+    /**
+     * Creates a parallel search.
+     * @param threads The number of threads to search with, including the calling thread.
+     * @param tableMegabytes The size of the shared transposition table in megabytes.
+     * @throws IllegalArgumentException Thrown if there are no threads or the table is too small.
+     */
+    public ParallelSearch(int threads, int tableMegabytes) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least 1 thread, not " + threads);
+        }
+
+        this.table = new TranspositionTable(tableMegabytes);
+        this.searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            this.searches[i] = new Search(this.table);
+        }
+        this.chosen = this.searches[0];
+        this.running = new Future<?>[threads];
+
+        this.helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Finds the best move in a position within a time budget, using all the threads.
+     * @param position The position to search. It is unchanged afterwards.
+     * @param timeMillis The time budget in milliseconds. The first depth is finished however long it takes, unless the
+     * search is stopped.
+     * @param maxDepth The deepest depth to search, at most Search.MAX_PLY.
+     * @return The best move found, or Move.NULL if the side to move has no legal moves.
+     */
+    public int findMove(Position position, long timeMillis, int maxDepth) {
+        long start = System.nanoTime();
+        long deadline = start + timeMillis * 1_000_000;
+        this.table.newSearch();
+
+        for (Search search : this.searches) {
+            search.clearStop();
+        }
+
+        for (int i = 1; i < this.searches.length; i++) {
+            Search helper = this.searches[i];
+            Position copy = new Position(position);
+            int depthSkip = i & 1;
+            this.running[i] = this.helpers.submit(() -> helper.iterate(copy, start, deadline, maxDepth, depthSkip));
+        }
+
+        int bestMove = this.searches[0].iterate(position, start, deadline, maxDepth, 0);
+        this.chosen = this.searches[0];
+
+        // The helpers stop as soon as the main search does, and a helper that finished a deeper depth has the better
+        // move, unless the main search has already found a forced result
+        for (int i = 1; i < this.searches.length; i++) {
+            this.searches[i].stop();
+        }
+
+        for (int i = 1; i < this.searches.length; i++) {
+            int move = this.await(i);
+            if (move != Move.NULL && Math.abs(this.searches[0].getScore()) <= Search.DECIDED &&
+                    this.searches[i].getCompletedDepth() > this.chosen.getCompletedDepth()) {
+                bestMove = move;
+                this.chosen = this.searches[i];
+            }
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Waits for a helper search to finish.
+     * @param index The index of the helper.
+     * @return The helper's best move, or Move.NULL if it has none or the wait was interrupted.
+     * @throws IllegalStateException Thrown if the helper search failed.
+     */
+    private int await(int index) throws IllegalStateException {
+        try {
+            return (Integer) this.running[index].get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return Move.NULL;
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Helper search failed", exception.getCause());
+        } finally {
+            this.running[index] = null;
+        }
+    }
+
+    /**
+     * Stops a running search as soon as possible. This may be called from another thread.
+     */
+    public void stop() {
+        for (Search search : this.searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Stops the helper threads. The search can't be used afterwards.
+     */
+    public void shutdown() {
+        this.stop();
+        if (this.helpers != null) {
+            this.helpers.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets the endgame tablebases probed by every thread.
+     * @param tablebase The tablebases, or null to search endgames like any other position.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        for (Search search : this.searches) {
+            search.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Sets the evaluation used by every thread.
+     * @param evaluation The evaluation.
+     */
+    public void setEvaluation(Evaluation evaluation) {
+        for (Search search : this.searches) {
+            search.setEvaluation(evaluation);
+        }
+    }
+
+    /**
+     * Sets how many nodes each thread may visit, on top of the time budget.
+     * @param nodeLimit The number of nodes per thread, or Long.MAX_VALUE for no limit.
+     * @throws IllegalArgumentException Thrown if the limit isn't positive.
+     */
+    public void setNodeLimit(long nodeLimit) throws IllegalArgumentException {
+        for (Search search : this.searches) {
+            search.setNodeLimit(nodeLimit);
+        }
+    }
+
+    /**
+     * Sets the random noise each thread adds to the score of each root move.
+     * @param noise The most noise added or taken away, in evaluation units, or 0 for none.
+     * @throws IllegalArgumentException Thrown if the noise is negative or too large.
+     */
+    public void setNoise(int noise) throws IllegalArgumentException {
+        this.setNoise(noise, System.nanoTime());
+    }
+
+    /**
+     * Sets the random noise each thread adds to the score of each root move, with each thread's random numbers
+     * seeded from the given seed.
+     * @param noise The most noise added or taken away, in evaluation units, or 0 for none.
+     * @param seed The seed each thread's seed is drawn from.
+     * @throws IllegalArgumentException Thrown if the noise is negative or too large.
+     */
+    public void setNoise(int noise, long seed) throws IllegalArgumentException {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (Search search : this.searches) {
+            search.setNoise(noise, seeds.nextLong());
+        }
+    }
+
+    /**
+     * @return The number of threads the search uses.
+     */
+    public int getThreads() {
+        return this.searches.length;
+    }
+
+    /**
+     * @return The transposition table shared by the threads.
+     */
+    public TranspositionTable getTable() {
+        return this.table;
+    }
+
+    /**
+     * @return The total number of positions visited by all the threads in the last search.
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (Search search : this.searches) {
+            nodes += search.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * @return The number of transposition table probes in the last search, over all the threads.
+     */
+    public long getTableProbes() {
+        long probes = 0;
+        for (Search search : this.searches) {
+            probes += search.getTableProbes();
+        }
+        return probes;
+    }
+
+    /**
+     * @return The number of transposition table probes in the last search which found the position, over all the
+     * threads.
+     */
+    public long getTableHits() {
+        long hits = 0;
+        for (Search search : this.searches) {
+            hits += search.getTableHits();
+        }
+        return hits;
+    }
+
+    /**
+     * @return The number of stores in the last search which replaced a table result for a different position, over
+     * all the threads.
+     */
+    public long getTableCollisions() {
+        long collisions = 0;
+        for (Search search : this.searches) {
+            collisions += search.getTableCollisions();
+        }
+        return collisions;
+    }
+
+    /**
+     * @return The fraction of beta cutoffs caused by the first move tried, in the search whose move was played.
+     */
+    public double getFirstMoveCutoffRate() {
+        return this.chosen.getFirstMoveCutoffRate();
+    }
+
+    /**
+     * @return The effective branching factor of the search whose move was played.
+     */
+    public double getEffectiveBranchingFactor() {
+        return this.chosen.getEffectiveBranchingFactor();
+    }
+
+    /**
+     * @return The deepest depth finished by the last search.
+     */
+    public int getCompletedDepth() {
+        return this.chosen.getCompletedDepth();
+    }
+
+    /**
+     * @return The score of the move played by the last search, for the side to move at the root.
+     */
+    public int getScore() {
+        return this.chosen.getScore();
+    }
+
+    /**
+     * Runs the scaling benchmark: the same positions are searched with 1, 2, 4... threads, and the node rate of
+     * each thread count is compared with one thread. Every thread count uses the same table size, after an untimed
+     * pass that warms up the JIT, so the comparison only measures the threads. The move ordering statistics are
+     * averaged over the positions.
+     * @param arguments Command-line arguments: the maximum number of threads and the time per search.
+     */
+    public static void main(String[] arguments) {
+        if (arguments.length < 2) {
+            System.out.println("Usage: java game.engine.ParallelSearch <max threads> <milliseconds per search>");
+            return;
+        }
+
+        int maxThreads = Integer.parseInt(arguments[0]);
+        long timeMillis = Long.parseLong(arguments[1]);
+        Position[] positions = benchPositions();
+        double baseRate = 0;
+
+        // Warm up the JIT before the timed runs
+        ParallelSearch warmUp = new ParallelSearch(maxThreads, Search.DEFAULT_TABLE_SIZE);
+        for (Position position : positions) {
+            warmUp.findMove(position, timeMillis, Search.MAX_PLY);
+        }
+        warmUp.shutdown();
+
+        for (int doubling = 1; ; doubling *= 2) {
+            int threads = Math.min(doubling, maxThreads);
+            ParallelSearch search = new ParallelSearch(threads, Search.DEFAULT_TABLE_SIZE);
+            long nodes = 0;
+            long nanos = 0;
+            int depth = 0;
+            double cutoffRate = 0;
+            double branching = 0;
+
+            for (Position position : positions) {
+                search.table.clear();
+                long start = System.nanoTime();
+                search.findMove(position, timeMillis, Search.MAX_PLY);
+                nanos += System.nanoTime() - start;
+                nodes += search.getNodes();
+                depth += search.getCompletedDepth();
+                cutoffRate += search.getFirstMoveCutoffRate();
+                branching += search.getEffectiveBranchingFactor();
+            }
+            search.shutdown();
+
+            double rate = nodes / (nanos / 1e9);
+            if (threads == 1) baseRate = rate;
+            System.out.printf("Threads: %d, %.0f nodes/s, speed-up: %.2f, average depth: %.1f, " +
+                    "first-move cutoffs: %.1f%%, branching factor: %.2f%n",
+                    threads, rate, rate / baseRate, (double) depth / positions.length,
+                    100 * cutoffRate / positions.length, branching / positions.length);
+
+            if (threads == maxThreads) break;
+        }
+    }
+
+    /**
+     * Builds the benchmark positions by playing fixed pseudo-random moves from the starting position.
+     * @return The positions, from early placement to the moving phase.
+     */
+    private static Position[] benchPositions() {
+        SplittableRandom random = new SplittableRandom(BENCH_POSITIONS);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Position[] positions = new Position[BENCH_POSITIONS];
+
+        for (int i = 0; i < BENCH_POSITIONS; i++) {
+            Position position = new Position();
+            for (int ply = 0; ply < 4 * i; ply++) {
+                int count = MoveGenerator.generate(position, moves);
+                if (count == 0) break;
+                position.make(moves[random.nextInt(count)]);
+            }
+            positions[i] = position;
+        }
+
+        return positions;
+    }
+}
@@ -0,0 +1,220 @@
+package game.engine;
+
+import game.board.Position;
+import game.games.Game;
+import game.players.PlayerID;
+import game.utils.FileIOUtil;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A command-line tool which counts the positions reachable in a given number of moves (perft). The counts check the
+ * move generator and make/unmake against known values, and the timing is the standard throughput benchmark.
+ * <p>
+ * Usage: {@code java game.engine.Perft [-verify] [-bench] <depth> [saved game file]}
+ * <ul>
+ *     <li>-verify checks at every node that unmake restores the position and that the incremental Zobrist key,
+ *     mills and open twos match those built from scratch. This is slower, so its timing isn't a benchmark.</li>
+ *     <li>-bench repeats the count after a warm-up and reports the best time.</li>
+ * </ul>
+ * Without a file the count starts from the starting position, otherwise from the last state in the saved game.
+ */
+public class Perft {
+    /**
+     * The number of timed runs in benchmark mode.
+     */
+    private static final int BENCH_RUNS = 5;
+
+    /**
+     * The moves of every ply, each ply using its own MoveGenerator.MAX_MOVES slots.
+     */
+    private final int[] moves;
+
+    /**
+     * True to check make/unmake and the Zobrist key at every node.
+     */
+    private final boolean verify;
+
+    /**
+     * Creates a perft counter.
+     * @param maxDepth The deepest count that will be run.
+     * @param verify True to check make/unmake and the Zobrist key at every node.
+     * @throws IllegalArgumentException Thrown if the depth is negative.
+     */
+    public Perft(int maxDepth, boolean verify) throws IllegalArgumentException {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("The depth can't be negative, not " + maxDepth);
+        }
+
+        this.moves = new int[(maxDepth + 1) * MoveGenerator.MAX_MOVES];
+        this.verify = verify;
+    }
+
+    /**
+     * Counts the positions reachable from a position in exactly the given number of moves.
+     * Finished games are not expanded, so they only count at the final depth.
+     * @param position The position to count from. It is unchanged afterwards.
+     * @param depth The number of moves, from 0 to the depth the counter was created for.
+     * @return The number of positions reached.
+     * @throws IllegalArgumentException Thrown if the depth is negative.
+     */
+    public long count(Position position, int depth) throws IllegalArgumentException {
+        if (depth < 0) {
+            throw new IllegalArgumentException("The depth can't be negative, not " + depth);
+        }
+
+        return this.count(position, depth, 0);
+    }
+
+    /**
+     * Counts the positions reachable in exactly the given number of moves, using the move slots of the given ply.
+     * @param position The position to count from.
+     * @param depth The number of moves left.
+     * @param ply The number of moves already made from the root.
+     * @return The number of positions reached.
+     */
+    private long count(Position position, int depth, int ply) {
+        if (depth == 0) return 1;
+
+        int offset = ply * MoveGenerator.MAX_MOVES;
+        int count = MoveGenerator.generate(position, this.moves, offset);
+        if (depth == 1 && !this.verify) return count;
+
+        long nodes = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int move = this.moves[i];
+            Position before = this.verify ? new Position(position) : null;
+
+            position.make(move);
+            if (this.verify) {
+                verifyKey(position, move);
+            }
+            nodes += this.count(position, depth - 1, ply + 1);
+            position.unmake(move);
+
+            if (this.verify && (!position.equals(before) || position.getKey() != before.getKey())) {
+                throw new IllegalStateException("Unmake of " + Move.toString(move) + " didn't restore " + before);
+            }
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Checks that a position's incremental Zobrist key, mills and open twos match those of the same position
+     * built from scratch.
+     * @param position The position to check.
+     * @param move The move that led to the position, for the error message.
+     * @throws IllegalStateException Thrown if the keys, mills or open twos don't match.
+     */
+    private static void verifyKey(Position position, int move) throws IllegalStateException {
+        Position rebuilt = new Position();
+        for (PlayerID id : PlayerID.values()) {
+            rebuilt.setPieces(id, position.getOccupancy(id), position.getInHand(id), position.getDead(id));
+        }
+        rebuilt.setSideToMove(position.getSideToMove());
+        rebuilt.setPendingRemoval(position.isPendingRemoval());
+
+        if (rebuilt.getKey() != position.getKey()) {
+            throw new IllegalStateException("Zobrist key mismatch after " + Move.toString(move) + " in " + position);
+        }
+
+        for (PlayerID id : PlayerID.values()) {
+            if (rebuilt.getMillMembers(id) != position.getMillMembers(id) ||
+                    rebuilt.getFullLines(id) != position.getFullLines(id)) {
+                throw new IllegalStateException("Mill mismatch after " + Move.toString(move) + " in " + position);
+            } else if (rebuilt.getOpenTwos(id) != position.getOpenTwos(id)) {
+                throw new IllegalStateException("Open two mismatch after " + Move.toString(move) + " in " + position);
+            }
+        }
+    }
+
+    /**
+     * Prints the count after each root move, then the total and the throughput.
+     * @param position The position to count from.
+     * @param depth The number of moves, at least 1 so there are root moves to divide by.
+     * @return The total number of positions reached.
+     * @throws IllegalArgumentException Thrown if the depth is less than 1.
+     */
+    public long divide(Position position, int depth) throws IllegalArgumentException {
+        if (depth < 1) {
+            throw new IllegalArgumentException("A divide needs a depth of at least 1, not " + depth);
+        }
+
+        long start = System.nanoTime();
+        long total = 0;
+        int count = MoveGenerator.generate(position, this.moves, 0);
+
+        for (int i = 0; i < count; i++) {
+            int move = this.moves[i];
+            position.make(move);
+            long nodes = this.count(position, depth - 1, 1);
+            position.unmake(move);
+
+            System.out.println(Move.toString(move) + ": " + nodes);
+            total += nodes;
+        }
+
+        report(total, System.nanoTime() - start);
+        return total;
+    }
+
+    /**
+     * Prints a node count with its timing.
+     * @param nodes The number of positions counted.
+     * @param nanos The time taken in nanoseconds.
+     */
+    private static void report(long nodes, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        System.out.printf("Nodes: %d, time: %.3f s, %.0f nodes/s%n", nodes, seconds, nodes / seconds);
+    }
+
+    /**
+     * Runs the perft tool.
+     * @param arguments Command-line arguments: the options, the depth and an optional saved game file.
+     * @throws IOException Thrown if the saved game can't be read.
+     */
+    public static void main(String[] arguments) throws IOException {
+        boolean verify = false;
+        boolean bench = false;
+        int argument = 0;
+
+        for (; argument < arguments.length && arguments[argument].startsWith("-"); argument++) {
+            switch (arguments[argument]) {
+                case "-verify" -> verify = true;
+                case "-bench" -> bench = true;
+                default -> throw new IllegalArgumentException("Unknown option " + arguments[argument]);
+            }
+        }
+
+        int depth = argument < arguments.length ? Integer.parseInt(arguments[argument++]) : 0;
+        if (depth < 1) {
+            System.out.println("Usage: java game.engine.Perft [-verify] [-bench] <depth> [saved game file]");
+            return;
+        }
+
+        Position position = argument < arguments.length ?
+                Game.GameMemento.toPosition(FileIOUtil.readFile(new File(arguments[argument]))) :
+                new Position();
+
+        System.out.println("Position: " + position);
+        Perft perft = new Perft(depth, verify);
+
+        if (!bench) {
+            perft.divide(position, depth);
+            return;
+        }
+
+        // Warm up the JIT before the timed runs
+        perft.count(position, depth);
+        long best = Long.MAX_VALUE;
+        long nodes = 0;
+        for (int run = 0; run < BENCH_RUNS; run++) {
+            long start = System.nanoTime();
+            nodes = perft.count(position, depth);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report(nodes, best);
+    }
+}
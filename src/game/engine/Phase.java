@@ -0,0 +1,21 @@
+package game.engine;
+
+/**
+ * Enum representing the phases a player goes through during a game.
+ */
+public enum Phase {
+    /**
+     * The player still has tokens in hand to place.
+     */
+    PLACING,
+
+    /**
+     * The player has placed all their tokens and slides them to adjacent locations.
+     */
+    MOVING,
+
+    /**
+     * The player has three tokens left and can jump them to any empty location.
+     */
+    FLYING
+}
@@ -0,0 +1,543 @@
+package game.engine;
+
+import game.board.Position;
+
+import java.util.SplittableRandom;
+
+/**
+ * A negamax search with alpha-beta pruning and iterative deepening. The search deepens one move at a time until
+ * its time budget runs out, and then plays the best move of the deepest depth it finished, so the time taken per
+ * move stays predictable however complex the position is.
+ * <p>
+ * Results are kept in a transposition table, so positions reached again by a different order of moves, which are
+ * common once tokens slide back and forth, are not searched again. Moves are tried in the order given by
+ * {@link MoveOrdering}, so most cutoffs happen on the first move tried. Endgames are looked up in the
+ * {@link Tablebase} when one is set. A search keeps its move buffers between calls so
+ * it allocates nothing while searching. It isn't thread-safe: each thread needs its own search.
+ */
+public class Search {
+    /**
+     * The score of a won position. Wins found further from the root score a little less, so the search prefers
+     * the quickest win and the slowest loss.
+     */
+    public static final int WIN = 30000;
+
+    /**
+     * The deepest the search goes from the root.
+     */
+    public static final int MAX_PLY = 64;
+
+    /**
+     * Scores further from 0 than this are wins or losses rather than evaluations. The band is wide enough for the
+     * longest tablebase distances as well as the search's own depth.
+     */
+    static final int DECIDED = WIN - 1000;
+
+    /**
+     * The size of a search's own transposition table in megabytes.
+     */
+    public static final int DEFAULT_TABLE_SIZE = 16;
+
+    /**
+     * A score beyond any real score, used as the initial alpha-beta window.
+     */
+    private static final int INFINITY = WIN + 1;
+
+    /**
+     * The clock and node limit are checked whenever the node count is a multiple of this plus one.
+     */
+    private static final int CHECK_INTERVAL = 1023;
+
+    /**
+     * The moves of every ply, each ply using its own MoveGenerator.MAX_MOVES slots.
+     */
+    private final int[] moves = new int[MAX_PLY * MoveGenerator.MAX_MOVES];
+
+    /**
+     * The table of results found so far, kept between moves.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The order moves are tried in.
+     */
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    /**
+     * The endgame tablebases to probe, or null if there are none.
+     */
+    private Tablebase tablebase;
+
+    /**
+     * The evaluation of the positions at the search horizon, which has the default weights unless another is set.
+     */
+    private Evaluation evaluation = new Evaluation();
+
+    /**
+     * The number of nodes after which the search stops, once the first depth is finished.
+     */
+    private long nodeLimit = Long.MAX_VALUE;
+
+    /**
+     * The most random noise added to the score of each root move, or 0 for none.
+     */
+    private int noise;
+
+    /**
+     * The random numbers for the noise, or null if there is no noise.
+     */
+    private SplittableRandom random;
+
+    /**
+     * The time in nanoseconds (see {@link System#nanoTime()}) when the search must stop.
+     */
+    private long deadline;
+
+    /**
+     * True once the search has run out of time or been stopped, after which its results are discarded.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * The number of positions visited by the last search.
+     */
+    private long nodes;
+
+    /**
+     * The number of positions in the last search whose result came from the tablebases.
+     */
+    private long tablebaseHits;
+
+    /**
+     * The number of transposition table probes in the last search.
+     */
+    private long tableProbes;
+
+    /**
+     * The number of transposition table probes in the last search which found the position.
+     */
+    private long tableHits;
+
+    /**
+     * The number of stores in the last search which replaced a table result for a different position from the
+     * same search.
+     */
+    private long tableCollisions;
+
+    /**
+     * The number of beta cutoffs in the last search.
+     */
+    private long cutoffs;
+
+    /**
+     * The number of beta cutoffs in the last search caused by the first move tried.
+     */
+    private long firstMoveCutoffs;
+
+    /**
+     * The deepest depth the last search finished.
+     */
+    private int completedDepth;
+
+    /**
+     * The score of the best move of the last search, for the side to move at the root.
+     */
+    private int score;
+
+    /**
+     * Creates a search with its own transposition table of the default size.
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_SIZE));
+    }
+
+    /**
+     * Creates a search using the given transposition table.
+     * @param table The transposition table to use.
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Finds the best move in a position within a time budget.
+     * @param position The position to search. It is unchanged afterwards.
+     * @param timeMillis The time budget in milliseconds. The first depth is finished however long it takes, unless the
+     * search is stopped.
+     * @param maxDepth The deepest depth to search, at most MAX_PLY.
+     * @return The best move found, or Move.NULL if the side to move has no legal moves.
+     */
+    public int findMove(Position position, long timeMillis, int maxDepth) {
+        long start = System.nanoTime();
+        this.stopped = false;
+        this.table.newSearch();
+        return this.iterate(position, start, start + timeMillis * 1_000_000, maxDepth, 0);
+    }
+
+    /**
+     * Runs the iterative deepening, without starting a new search in the transposition table or clearing a stop
+     * request. This lets several searches share one table as part of a {@link ParallelSearch}.
+     * @param position The position to search. It is unchanged afterwards.
+     * @param start The time in nanoseconds when the search started.
+     * @param deadline The time in nanoseconds when the search must stop.
+     * @param maxDepth The deepest depth to search, at most MAX_PLY.
+     * @param depthSkip The number of depths skipped after depth 1, which is finished however long it takes, unless
+     * the search is stopped.
+     * @return The best move found, or Move.NULL if the side to move has no legal moves.
+     */
+    int iterate(Position position, long start, long deadline, int maxDepth, int depthSkip) {
+        this.deadline = deadline;
+        this.nodes = 0;
+        this.tablebaseHits = 0;
+        this.tableProbes = 0;
+        this.tableHits = 0;
+        this.tableCollisions = 0;
+        this.cutoffs = 0;
+        this.firstMoveCutoffs = 0;
+        this.ordering.newSearch();
+        this.completedDepth = 0;
+        this.score = 0;
+
+        int count = MoveGenerator.generate(position, this.moves, 0);
+        if (count == 0) return Move.NULL;
+
+        int bestMove = this.moves[0];
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth += depth == 1 ? 1 + depthSkip : 1) {
+            int alpha = -INFINITY;
+            int depthBest = Move.NULL;
+
+            for (int i = 0; i < count; i++) {
+                // With noise, moves up to twice the noise worse than the best are scored exactly, as they can still
+                // come out on top
+                int window = alpha == -INFINITY ? -INFINITY : alpha - 2 * this.noise;
+                int move = this.moves[i];
+                position.make(move);
+                int score = -this.negamax(position, depth - 1, -INFINITY, -window, 1);
+                position.unmake(move);
+
+                // A subtree cut short by a stop has no real score
+                if (this.stopped) break;
+
+                if (this.noise != 0 && Math.abs(score) <= DECIDED) {
+                    score += this.random.nextInt(2 * this.noise + 1) - this.noise;
+                }
+
+                if (score > alpha) {
+                    alpha = score;
+                    depthBest = move;
+                }
+            }
+
+            if (this.stopped) {
+                // An unfinished depth is discarded, unless no depth has finished, in which case the best of the
+                // moves searched in full is still better than no choice at all
+                if (this.completedDepth == 0 && depthBest != Move.NULL) {
+                    bestMove = depthBest;
+                    this.score = alpha;
+                }
+                break;
+            }
+
+            bestMove = depthBest;
+            this.score = alpha;
+            this.completedDepth = depth;
+            moveToFront(this.moves, 0, count, bestMove);
+
+            // A forced result won't change with more depth, and a deeper search is unlikely to finish in the
+            // time left once half the budget is used
+            if (Math.abs(alpha) > DECIDED || System.nanoTime() - start > (this.deadline - start) / 2) break;
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Stops a running search as soon as possible. It still returns the best move of the deepest finished depth, or
+     * if no depth has finished, the best of the root moves searched in full. This may be called from another thread.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Clears a stop request before a search is started with {@link #iterate}.
+     */
+    void clearStop() {
+        this.stopped = false;
+    }
+
+    /**
+     * Searches a position with alpha-beta pruning.
+     * @param position The position to search, with the side to move about to play.
+     * @param depth The number of moves left to search.
+     * @param alpha The score the side to move is already guaranteed.
+     * @param beta The score the opponent is already guaranteed, negated.
+     * @param ply The number of moves made from the root.
+     * @return The score of the position for the side to move, or 0 if the search was stopped.
+     */
+    private int negamax(Position position, int depth, int alpha, int beta, int ply) {
+        // The limits only apply once a depth has finished, so there is always a searched move to play
+        if ((++this.nodes & CHECK_INTERVAL) == 0 && this.completedDepth != 0 &&
+                (System.nanoTime() > this.deadline || this.nodes >= this.nodeLimit)) {
+            this.stopped = true;
+        }
+        if (this.stopped) return 0;
+
+        // The tablebases know the exact result of an endgame, however far away it is
+        if (this.tablebase != null) {
+            int result = this.tablebase.probe(position);
+            if (result != Tablebase.UNKNOWN) {
+                this.tablebaseHits++;
+                return scoreResult(result, ply);
+            }
+        }
+
+        // A result from the table that is deep enough and within the window needs no search
+        long key = position.getKey();
+        long entry = 0;
+        if (depth > 0) {
+            this.tableProbes++;
+            entry = this.table.probe(key);
+        }
+        int tableMove = Move.NULL;
+        if (entry != 0) {
+            this.tableHits++;
+            tableMove = TranspositionTable.getMove(entry);
+
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+
+                if (bound == TranspositionTable.EXACT ||
+                        bound == TranspositionTable.LOWER && score >= beta ||
+                        bound == TranspositionTable.UPPER && score <= alpha) {
+                    return score;
+                }
+            }
+        }
+
+        int offset = ply * MoveGenerator.MAX_MOVES;
+        int count = MoveGenerator.generate(position, this.moves, offset);
+        if (count == 0) return -WIN + ply;
+        if (depth == 0 || ply == MAX_PLY - 1) return this.evaluation.evaluate(position);
+
+        this.ordering.score(position, this.moves, offset, count, tableMove, ply);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NULL;
+        for (int i = offset; i < offset + count; i++) {
+            int move = this.ordering.next(this.moves, i, offset + count);
+            position.make(move);
+            int score = -this.negamax(position, depth - 1, -beta, -alpha, ply + 1);
+            position.unmake(move);
+
+            if (this.stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        this.cutoffs++;
+                        if (i == offset) this.firstMoveCutoffs++;
+                        this.ordering.cutoff(move, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER :
+                best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        int storedMove = bound == TranspositionTable.UPPER ? Move.NULL : bestMove;
+        if (this.table.store(key, depth, bound, toTable(best, ply), storedMove)) {
+            this.tableCollisions++;
+        }
+        return best;
+    }
+
+    /**
+     * Converts a tablebase result to a score.
+     * @param result The result of a tablebase probe, other than UNKNOWN.
+     * @param ply The number of moves made from the root.
+     * @return The score relative to the root.
+     */
+    private static int scoreResult(int result, int ply) {
+        if (result == Tablebase.DRAW) return 0;
+
+        int distance = ply + Tablebase.getDistance(result);
+        return Tablebase.isWin(result) ? WIN - distance : -WIN + distance;
+    }
+
+    /**
+     * Converts a score to store in the table. Win and loss scores count the distance from the root, so they are
+     * stored as the distance from the position instead, which is the same wherever the position is reached.
+     * @param score The score relative to the root.
+     * @param ply The number of moves made from the root.
+     * @return The score relative to the position.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > DECIDED) return score + ply;
+        if (score < -DECIDED) return score - ply;
+        return score;
+    }
+
+    /**
+     * Converts a score read from the table back to a score relative to the root.
+     * @param score The score relative to the position.
+     * @param ply The number of moves made from the root.
+     * @return The score relative to the root.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score > DECIDED) return score - ply;
+        if (score < -DECIDED) return score + ply;
+        return score;
+    }
+
+    /**
+     * Moves a move to the front of a list, keeping the order of the others.
+     * @param moves The array holding the list.
+     * @param offset The index of the first move in the list.
+     * @param count The number of moves in the list.
+     * @param move The move to bring to the front.
+     */
+    private static void moveToFront(int[] moves, int offset, int count, int move) {
+        for (int i = offset; i < offset + count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, offset, moves, offset + 1, i - offset);
+                moves[offset] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the endgame tablebases to probe once both players have placed all their tokens.
+     * @param tablebase The tablebases, or null to search endgames like any other position.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the evaluation of the positions at the search horizon.
+     * @param evaluation The evaluation.
+     */
+    public void setEvaluation(Evaluation evaluation) {
+        this.evaluation = evaluation;
+    }
+
+    /**
+     * Sets how many nodes a search may visit, on top of its time budget. The first depth is always finished, so a
+     * search can go over a small limit.
+     * @param nodeLimit The number of nodes, or Long.MAX_VALUE for no limit.
+     * @throws IllegalArgumentException Thrown if the limit isn't positive.
+     */
+    public void setNodeLimit(long nodeLimit) throws IllegalArgumentException {
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("The node limit must be positive, not " + nodeLimit);
+        }
+
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Sets the random noise added to the score of each root move, which makes the search play weaker and less
+     * predictable moves. Won and lost scores get no noise, so a forced result is never thrown away.
+     * @param noise The most noise added or taken away, in evaluation units, or 0 for none.
+     * @throws IllegalArgumentException Thrown if the noise is negative or too large.
+     */
+    public void setNoise(int noise) throws IllegalArgumentException {
+        this.setNoise(noise, System.nanoTime());
+    }
+
+    /**
+     * Sets the random noise added to the score of each root move, which is the same whenever it is given the same
+     * seed and the search visits the same moves.
+     * @param noise The most noise added or taken away, in evaluation units, or 0 for none.
+     * @param seed The seed of the random numbers for the noise.
+     * @throws IllegalArgumentException Thrown if the noise is negative or too large.
+     */
+    public void setNoise(int noise, long seed) throws IllegalArgumentException {
+        if (noise < 0 || noise > WIN - DECIDED) {
+            throw new IllegalArgumentException("The noise must be from 0 to " + (WIN - DECIDED) + ", not " + noise);
+        }
+
+        this.noise = noise;
+        this.random = noise == 0 ? null : new SplittableRandom(seed);
+    }
+
+    /**
+     * @return The number of positions in the last search whose result came from the tablebases.
+     */
+    public long getTablebaseHits() {
+        return this.tablebaseHits;
+    }
+
+    /**
+     * @return The number of transposition table probes in the last search.
+     */
+    public long getTableProbes() {
+        return this.tableProbes;
+    }
+
+    /**
+     * @return The number of transposition table probes in the last search which found the position.
+     */
+    public long getTableHits() {
+        return this.tableHits;
+    }
+
+    /**
+     * @return The number of stores in the last search which replaced a table result for a different position.
+     */
+    public long getTableCollisions() {
+        return this.tableCollisions;
+    }
+
+    /**
+     * @return The transposition table used by this search.
+     */
+    public TranspositionTable getTable() {
+        return this.table;
+    }
+
+    /**
+     * @return The number of positions visited by the last search.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return The fraction of beta cutoffs in the last search caused by the first move tried, from 0 to 1.
+     */
+    public double getFirstMoveCutoffRate() {
+        return this.cutoffs == 0 ? 0 : (double) this.firstMoveCutoffs / this.cutoffs;
+    }
+
+    /**
+     * Finds the effective branching factor of the last search: the number of moves per node a full-width tree of
+     * the same depth and size would have.
+     * @return The effective branching factor, or 0 if no depth was finished.
+     */
+    public double getEffectiveBranchingFactor() {
+        return this.completedDepth == 0 ? 0 : Math.pow(this.nodes, 1.0 / this.completedDepth);
+    }
+
+    /**
+     * @return The deepest depth the last search finished, or 0 if it was stopped before finishing any.
+     */
+    public int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    /**
+     * @return The score of the best move of the last search, for the side to move at the root.
+     */
+    public int getScore() {
+        return this.score;
+    }
+}
@@ -0,0 +1,294 @@
+package game.engine;
+
+import game.board.Position;
+import game.board.Symmetry;
+import game.players.PlayerID;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Endgame tablebases: the solved result of every position after both players have placed all their tokens, up to
+ * a number of tokens per side. The tables are built offline by {@link TablebaseGenerator} and read here through
+ * memory-mapped files, so probing costs one memory read and the operating system shares the pages between games.
+ * <p>
+ * There is one table for each number of tokens of the side to move (own) and of its opponent, in a file named
+ * {@code <own>v<opponent>.tb}. A table holds one byte per position, indexed by {@link #index(int, int)}: 0 for a
+ * draw, or 1 + the number of moves to the end of the game with perfect play. The side to move wins if that number
+ * is odd and loses if it is even.
+ * <p>
+ * Symmetric positions have the same result, so a table only holds the canonical position of each class (see
+ * {@link Symmetry}), which makes it about 16 times smaller than one with every position.
+ */
+public class Tablebase {
+    /**
+     * The directory tablebases are read from by default, relative to the working directory.
+     */
+    public static final String DEFAULT_DIRECTORY = "tablebases";
+
+    /**
+     * The fewest tokens a player has on the board without having lost.
+     */
+    public static final int MIN_PIECES = 3;
+
+    /**
+     * The most tokens per side a table can have. Solving larger tables would need several gigabytes of memory.
+     */
+    public static final int MAX_PIECES = 6;
+
+    /**
+     * The result of a probe for a position which isn't in the tables.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * The result of a probe for a drawn position.
+     */
+    public static final int DRAW = 0;
+
+    /**
+     * The binomial coefficients n choose k, indexed by [n][k].
+     */
+    private static final int[][] BINOMIAL = new int[Position.LOCATION_COUNT + 1][Position.LOCATION_COUNT + 1];
+
+    /**
+     * The canonical sets of own locations for each number of tokens, in increasing order of their masks.
+     */
+    private static final int[][] CANONICAL_SETS = new int[MAX_PIECES + 1][];
+
+    /**
+     * The index of each canonical set of own locations among CANONICAL_SETS, indexed by number of tokens and
+     * the set's rank (see {@link #rank(int)}). Other sets have -1.
+     */
+    private static final int[][] SET_INDEX = new int[MAX_PIECES + 1][];
+
+    static {
+        for (int n = 0; n <= Position.LOCATION_COUNT; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+
+        for (int count = MIN_PIECES; count <= MAX_PIECES; count++) {
+            int sets = BINOMIAL[Position.LOCATION_COUNT][count];
+            int[] canonical = new int[sets];
+            int canonicalCount = 0;
+            SET_INDEX[count] = new int[sets];
+
+            // The sets are visited in increasing order, so each set's rank is its position in the loop
+            int mask = (1 << count) - 1;
+            for (int rank = 0; rank < sets; rank++, mask = nextCombination(mask)) {
+                if (Symmetry.canonical(mask, 0) == 0) {
+                    SET_INDEX[count][rank] = canonicalCount;
+                    canonical[canonicalCount++] = mask;
+                } else {
+                    SET_INDEX[count][rank] = -1;
+                }
+            }
+
+            CANONICAL_SETS[count] = Arrays.copyOf(canonical, canonicalCount);
+        }
+    }
+
+    /**
+     * The mapped table for each number of own and opponent tokens, or null if it isn't available.
+     */
+    private final MappedByteBuffer[][] tables = new MappedByteBuffer[MAX_PIECES + 1][MAX_PIECES + 1];
+
+    /**
+     * Maps all the tables found in a directory.
+     * @param directory The directory holding the table files.
+     * @throws IOException Thrown if a table can't be mapped or has the wrong size.
+     */
+    public Tablebase(File directory) throws IOException {
+        for (int own = MIN_PIECES; own <= MAX_PIECES; own++) {
+            for (int opponent = MIN_PIECES; opponent <= MAX_PIECES; opponent++) {
+                File file = new File(directory, getFileName(own, opponent));
+                if (!file.isFile()) continue;
+
+                if (file.length() != size(own, opponent)) {
+                    throw new IOException("Tablebase " + file + " should have " + size(own, opponent) + " bytes");
+                }
+
+                // The mapping stays valid after the channel is closed
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    this.tables[own][opponent] = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the table for a number of tokens is available.
+     * @param own The number of tokens of the side to move.
+     * @param opponent The number of tokens of its opponent.
+     * @return True if the table is available, false otherwise.
+     */
+    public boolean hasTable(int own, int opponent) {
+        return own >= MIN_PIECES && own <= MAX_PIECES && opponent >= MIN_PIECES && opponent <= MAX_PIECES &&
+                this.tables[own][opponent] != null;
+    }
+
+    /**
+     * Looks up the result of a position.
+     * @param position The position at the start of a turn.
+     * @return The result (see {@link Tablebase}), or UNKNOWN if the position is still in the placement phase or
+     * its table isn't available.
+     */
+    public int probe(Position position) {
+        PlayerID side = position.getSideToMove();
+        if (position.getInHand(side) != 0 || position.getInHand(side.opponent()) != 0 ||
+                position.isPendingRemoval()) {
+            return UNKNOWN;
+        }
+
+        int own = position.getOccupancy(side);
+        int opponent = position.getOccupancy(side.opponent());
+        int ownCount = Integer.bitCount(own);
+        int opponentCount = Integer.bitCount(opponent);
+        if (!this.hasTable(ownCount, opponentCount)) return UNKNOWN;
+
+        return this.tables[ownCount][opponentCount].get(index(own, opponent)) & 0xFF;
+    }
+
+    /**
+     * @param result A result other than UNKNOWN.
+     * @return True if the side to move wins.
+     */
+    public static boolean isWin(int result) {
+        return result > 0 && (result & 1) == 0;
+    }
+
+    /**
+     * @param result A result other than UNKNOWN.
+     * @return True if the side to move loses.
+     */
+    public static boolean isLoss(int result) {
+        return (result & 1) == 1;
+    }
+
+    /**
+     * @param result A win or loss result.
+     * @return The number of moves to the end of the game with perfect play.
+     */
+    public static int getDistance(int result) {
+        return result - 1;
+    }
+
+    /**
+     * Gets the name of a table's file.
+     * @param own The number of tokens of the side to move.
+     * @param opponent The number of tokens of its opponent.
+     * @return The file name.
+     */
+    public static String getFileName(int own, int opponent) {
+        return own + "v" + opponent + ".tb";
+    }
+
+    /**
+     * Counts the entries of a table.
+     * @param own The number of tokens of the side to move, from MIN_PIECES to MAX_PIECES.
+     * @param opponent The number of tokens of its opponent.
+     * @return The number of canonical sets of own locations times the number of ways to place the opponent's
+     * tokens on the other locations.
+     */
+    public static int size(int own, int opponent) {
+        return CANONICAL_SETS[own].length * BINOMIAL[Position.LOCATION_COUNT - own][opponent];
+    }
+
+    /**
+     * Finds the index of a position in its table. The position is first mapped to its canonical form. Then the own
+     * tokens are numbered among the canonical sets of that many locations, and the opponent's are ranked among the
+     * sets of locations the own tokens leave empty.
+     * @param own The occupancy mask of the side to move.
+     * @param opponent The occupancy mask of its opponent.
+     * @return The index of the position.
+     */
+    public static int index(int own, int opponent) {
+        int symmetry = Symmetry.canonical(own, opponent);
+        own = Symmetry.applyMask(symmetry, own);
+        opponent = Symmetry.applyMask(symmetry, opponent);
+
+        int ownCount = Integer.bitCount(own);
+        int opponentCount = Integer.bitCount(opponent);
+        return SET_INDEX[ownCount][rank(own)] * BINOMIAL[Position.LOCATION_COUNT - ownCount][opponentCount] +
+                rank(compress(opponent, own));
+    }
+
+    /**
+     * @param count The number of locations, from MIN_PIECES to MAX_PIECES.
+     * @return The number of canonical sets of that many locations.
+     */
+    static int countCanonicalSets(int count) {
+        return CANONICAL_SETS[count].length;
+    }
+
+    /**
+     * @param count The number of locations, from MIN_PIECES to MAX_PIECES.
+     * @param index The index of the set among the canonical sets.
+     * @return The mask of the canonical set.
+     */
+    static int getCanonicalSet(int count, int index) {
+        return CANONICAL_SETS[count][index];
+    }
+
+    /**
+     * Ranks a set of locations among all sets of the same size, in increasing order of their masks.
+     * @param mask The set of locations.
+     * @return The rank, from 0.
+     */
+    static int rank(int mask) {
+        int rank = 0;
+        for (int k = 1; mask != 0; k++, mask &= mask - 1) {
+            rank += BINOMIAL[Integer.numberOfTrailingZeros(mask)][k];
+        }
+        return rank;
+    }
+
+    /**
+     * Removes the given locations from a mask, shifting the higher locations down to close the gaps.
+     * @param mask The mask to compress.
+     * @param removed The locations to remove, which must not be in the mask.
+     * @return The compressed mask.
+     */
+    static int compress(int mask, int removed) {
+        int compressed = 0;
+        for (; mask != 0; mask &= mask - 1) {
+            int location = Integer.numberOfTrailingZeros(mask);
+            compressed |= 1 << (location - Integer.bitCount(removed & ((1 << location) - 1)));
+        }
+        return compressed;
+    }
+
+    /**
+     * Spreads a compressed mask back over the locations left free, reversing {@link #compress(int, int)}.
+     * @param compressed The compressed mask.
+     * @param free The locations left free, in increasing order.
+     * @return The expanded mask.
+     */
+    static int expand(int compressed, int free) {
+        int mask = 0;
+        for (; free != 0; free &= free - 1, compressed >>>= 1) {
+            if ((compressed & 1) != 0) {
+                mask |= free & -free;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Finds the next larger mask with the same number of locations.
+     * @param mask A non-empty mask.
+     * @return The next mask in increasing order.
+     */
+    static int nextCombination(int mask) {
+        int lowest = mask & -mask;
+        int ripple = mask + lowest;
+        return ripple | ((mask ^ ripple) >>> 2) / lowest;
+    }
+}
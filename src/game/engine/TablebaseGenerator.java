@@ -0,0 +1,486 @@
+package game.engine;
+
+import game.board.Adjacency;
+import game.board.Mills;
+import game.board.Position;
+import game.board.Symmetry;
+import game.players.PlayerID;
+import game.tokens.TokenBank;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A command-line tool which solves the endgame tablebases (see {@link Tablebase}) by retrograde analysis.
+ * <p>
+ * Usage: {@code java game.engine.TablebaseGenerator [-threads n] <max tokens per side> [directory]}
+ * <p>
+ * Tables are solved in increasing order of tokens, since a capture leads to a table with one token fewer, and
+ * tables which already exist are kept. The tables for own and opponent token counts (a, c) and (c, a) are solved
+ * together, as moves without a capture lead from one to the other:
+ * <ol>
+ *     <li>Every position is examined once. Positions without moves are lost. Captures are looked up in the smaller
+ *     tables, and the position counts its other moves.</li>
+ *     <li>The results are spread backwards one move at a time, in order of distance. At each distance, the
+ *     predecessors of every position lost at that distance are won, and the predecessors of every position won
+ *     at that distance have one less move left to try; those with no moves left are lost.</li>
+ *     <li>Positions still unresolved when no more results spread are draws.</li>
+ * </ol>
+ * Both passes run in parallel over the positions, updating the shared state of each position with atomic
+ * compare-and-set, so the tables are solved on all cores.
+ * <p>
+ * Only canonical positions (see {@link Symmetry}) are solved, and a move leads to the canonical form of the
+ * position it reaches. When positions are symmetric, one move can be retracted onto its predecessor several times,
+ * so each move counts once for each symmetry of the position it reaches, over the symmetries of the predecessor.
+ */
+public class TablebaseGenerator {
+    /**
+     * The most moves to the end of the game a table can store.
+     */
+    private static final int MAX_DISTANCE = 254;
+
+    /**
+     * Access to the elements of a state array with compare-and-set.
+     * A state packs the result (0 or distance + 1) in bits 0-7, the number of moves left to try in bits 8-15,
+     * the longest distance of an opponent win after a move in bits 16-23, and the distance of the quickest win by
+     * a capture in bits 24-31 (0 if there is none).
+     */
+    private static final VarHandle STATE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * The directory the tables are written to.
+     */
+    private final File directory;
+
+    /**
+     * The threads solving the tables.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The tables solved so far, for looking up captures.
+     */
+    private Tablebase solved;
+
+    /**
+     * A position each thread reuses to generate moves.
+     */
+    private final ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+
+    /**
+     * A move array each thread reuses.
+     */
+    private final ThreadLocal<int[]> moveBuffers = ThreadLocal.withInitial(() -> new int[MoveGenerator.MAX_MOVES]);
+
+    /**
+     * Creates a generator.
+     * @param directory The directory the tables are written to and read from.
+     * @param threads The number of threads to solve with.
+     * @throws IOException Thrown if existing tables can't be read.
+     */
+    public TablebaseGenerator(File directory, int threads) throws IOException {
+        this.directory = directory;
+        this.pool = new ForkJoinPool(threads);
+        this.solved = new Tablebase(directory);
+    }
+
+    /**
+     * Solves every table with up to the given number of tokens per side which doesn't exist yet.
+     * @param maxPieces The most tokens per side.
+     * @throws IOException Thrown if a table can't be written.
+     * @throws IllegalArgumentException Thrown if the number of tokens is out of range.
+     */
+    public void generate(int maxPieces) throws IOException, IllegalArgumentException {
+        if (maxPieces < Tablebase.MIN_PIECES || maxPieces > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Tablebases have " + Tablebase.MIN_PIECES + " to " +
+                    Tablebase.MAX_PIECES + " tokens per side, not " + maxPieces);
+        }
+
+        for (int total = 2 * Tablebase.MIN_PIECES; total <= 2 * maxPieces; total++) {
+            for (int own = Tablebase.MIN_PIECES; own <= total / 2; own++) {
+                int opponent = total - own;
+                if (opponent > maxPieces) continue;
+                if (this.solved.hasTable(own, opponent) && this.solved.hasTable(opponent, own)) continue;
+
+                long start = System.nanoTime();
+                this.solve(own, opponent);
+                this.solved = new Tablebase(this.directory);
+                System.out.printf("Solved %s and %s in %.1f s%n", Tablebase.getFileName(own, opponent),
+                        Tablebase.getFileName(opponent, own), (System.nanoTime() - start) / 1e9);
+            }
+        }
+    }
+
+    /**
+     * One table being solved.
+     */
+    private static class Table {
+        /**
+         * The number of tokens of the side to move.
+         */
+        private final int own;
+
+        /**
+         * The number of tokens of its opponent.
+         */
+        private final int opponent;
+
+        /**
+         * The packed state of each position (see {@link TablebaseGenerator#STATE}).
+         */
+        private final int[] states;
+
+        /**
+         * The table whose positions follow a move without capture.
+         */
+        private Table partner;
+
+        /**
+         * Creates an unsolved table.
+         * @param own The number of tokens of the side to move.
+         * @param opponent The number of tokens of its opponent.
+         */
+        private Table(int own, int opponent) {
+            this.own = own;
+            this.opponent = opponent;
+            this.states = new int[Tablebase.size(own, opponent)];
+        }
+
+        /**
+         * @return The number of positions for each canonical set of own locations.
+         */
+        private int opponentSets() {
+            return Tablebase.size(this.own, this.opponent) / Tablebase.countCanonicalSets(this.own);
+        }
+    }
+
+    /**
+     * Solves a pair of tables and writes them.
+     * @param own The number of tokens of the side to move in the first table.
+     * @param opponent The number of tokens of its opponent.
+     * @throws IOException Thrown if a table can't be written.
+     */
+    private void solve(int own, int opponent) throws IOException {
+        Table first = new Table(own, opponent);
+        Table second = own == opponent ? first : new Table(opponent, own);
+        first.partner = second;
+        second.partner = first;
+        Table[] tables = own == opponent ? new Table[] {first} : new Table[] {first, second};
+
+        // The first pass resolves positions without moves and those where every move is a capture
+        AtomicInteger furthest = new AtomicInteger();
+        for (Table table : tables) {
+            this.forEachPosition(table, (ownMask, opponentMask, index) -> {
+                int state = this.examine(table, ownMask, opponentMask);
+                table.states[index] = state;
+                int quickestWin = state >>> 24;
+                raise(furthest, Math.max(state & 0xFF, quickestWin == 0 ? 0 : quickestWin + 1));
+            });
+        }
+
+        for (int level = 0; level + 1 <= furthest.get(); level++) {
+            int distance = level;
+            int result = distance + 1;
+
+            // Wins by a capture at this distance count now, unless something quicker was found
+            if (Tablebase.isWin(result)) {
+                for (Table table : tables) {
+                    this.run(table.states.length, index -> {
+                        int state = table.states[index];
+                        if ((state & 0xFF) == 0 && state >>> 24 == distance) {
+                            table.states[index] = state | result;
+                        }
+                    });
+                }
+            }
+
+            for (Table table : tables) {
+                this.forEachPosition(table, (ownMask, opponentMask, index) -> {
+                    if ((table.states[index] & 0xFF) == result) {
+                        raise(furthest, this.retract(table, ownMask, opponentMask, distance));
+                    }
+                });
+            }
+        }
+
+        for (Table table : tables) {
+            this.write(table);
+        }
+    }
+
+    /**
+     * Raises a shared maximum. It is only written when it grows, so threads rarely contend for it.
+     * @param maximum The maximum.
+     * @param value The new value.
+     */
+    private static void raise(AtomicInteger maximum, int value) {
+        if (value > maximum.get()) {
+            maximum.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Examines a position's moves before any results are spread.
+     * @param table The position's table.
+     * @param own The occupancy mask of the side to move.
+     * @param opponent The occupancy mask of its opponent.
+     * @return The initial state of the position.
+     */
+    private int examine(Table table, int own, int opponent) {
+        Position position = this.positions.get();
+        position.setPieces(PlayerID.BLACK, own, 0, TokenBank.TOTAL_TOKEN_COUNT - table.own);
+        position.setPieces(PlayerID.WHITE, opponent, 0, TokenBank.TOTAL_TOKEN_COUNT - table.opponent);
+
+        int[] moves = this.moveBuffers.get();
+        int count = MoveGenerator.generate(position, moves);
+        if (count == 0) return 1;
+
+        int weights = 0;
+        int longest = 0;
+        int quickestWin = 0;
+        boolean escape = false;
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (!Move.isCapture(move)) {
+                int after = own ^ (1 << Move.getFrom(move) | 1 << Move.getTo(move));
+                weights += Symmetry.countInvariant(opponent, after);
+                continue;
+            }
+
+            // A capture leaves the opponent with one token fewer, and with two tokens they have lost
+            int result;
+            if (table.opponent - 1 < Tablebase.MIN_PIECES) {
+                result = 1;
+            } else {
+                position.make(move);
+                result = this.solved.probe(position);
+                position.unmake(move);
+
+                if (result == Tablebase.UNKNOWN) {
+                    throw new IllegalStateException("Missing tablebase " +
+                            Tablebase.getFileName(table.opponent - 1, table.own));
+                }
+            }
+
+            if (result == Tablebase.DRAW) {
+                escape = true;
+            } else if (Tablebase.isLoss(result)) {
+                int distance = Tablebase.getDistance(result) + 1;
+                quickestWin = quickestWin == 0 ? distance : Math.min(quickestWin, distance);
+            } else {
+                longest = Math.max(longest, Tablebase.getDistance(result));
+            }
+        }
+
+        // A position with a drawing or winning capture can't be lost, so it always keeps a move left to try
+        int left = weights / Symmetry.countInvariant(own, opponent);
+        if (escape || quickestWin != 0) {
+            left++;
+        }
+        if (left > 0xFF) {
+            throw new IllegalStateException("Too many moves to count in a state: " + left);
+        }
+
+        int result = left == 0 ? checkDistance(longest + 1) + 1 : 0;
+        return result | left << 8 | longest << 16 | quickestWin << 24;
+    }
+
+    /**
+     * Spreads the result of a position to the positions one move without capture before it, in the partner table.
+     * @param table The position's table.
+     * @param own The occupancy mask of the side to move.
+     * @param opponent The occupancy mask of its opponent, who made the last move.
+     * @param distance The position's distance to the end of the game.
+     * @return The largest result given to a predecessor, or 0 if none was resolved.
+     */
+    private int retract(Table table, int own, int opponent, int distance) {
+        boolean lost = Tablebase.isLoss(distance + 1);
+        int occupied = own | opponent;
+        int empty = Position.ALL_LOCATIONS & ~occupied;
+        boolean jumped = table.opponent < 4;
+        int reached = 0;
+
+        for (int pieces = opponent; pieces != 0; pieces &= pieces - 1) {
+            int to = Integer.numberOfTrailingZeros(pieces);
+
+            // A move that closed a mill would have captured, so it came from the smaller table instead
+            if (Mills.getMills(opponent, to) != 0) continue;
+
+            int sources = jumped ? empty : Adjacency.getFreeNeighbours(to, occupied);
+            for (; sources != 0; sources &= sources - 1) {
+                int from = Integer.numberOfTrailingZeros(sources);
+                int before = opponent ^ (1 << to | 1 << from);
+                int index = Tablebase.index(before, own);
+                reached = Math.max(reached, update(table.partner.states, index, lost, distance));
+            }
+        }
+
+        return reached;
+    }
+
+    /**
+     * Updates a predecessor of a resolved position.
+     * @param states The states of the predecessor's table.
+     * @param index The index of the predecessor.
+     * @param lost True if the resolved position is lost for the side to move in it.
+     * @param distance The resolved position's distance to the end of the game.
+     * @return The predecessor's new result, or 0 if it wasn't resolved.
+     */
+    private static int update(int[] states, int index, boolean lost, int distance) {
+        while (true) {
+            int state = (int) STATE.getVolatile(states, index);
+            if ((state & 0xFF) != 0) return 0;
+
+            int next;
+            int result = 0;
+            if (lost) {
+                // Moving into a lost position wins
+                result = checkDistance(distance + 1) + 1;
+                next = state | result;
+            } else {
+                // Moving into a won position loses, and with no moves left the position is lost
+                int left = (state >>> 8 & 0xFF) - 1;
+                int longest = Math.max(state >>> 16 & 0xFF, distance);
+                if (left == 0) {
+                    result = checkDistance(longest + 1) + 1;
+                }
+                next = state & 0xFF000000 | longest << 16 | left << 8 | result;
+            }
+
+            if (STATE.compareAndSet(states, index, state, next)) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Checks that a distance fits in a table.
+     * @param distance The number of moves to the end of the game.
+     * @return The distance.
+     * @throws IllegalStateException Thrown if the distance is too long to store.
+     */
+    private static int checkDistance(int distance) throws IllegalStateException {
+        if (distance > MAX_DISTANCE) {
+            throw new IllegalStateException("Distance " + distance + " is longer than a table can store");
+        }
+        return distance;
+    }
+
+    /**
+     * A task run for each position of a table.
+     */
+    private interface PositionTask {
+        /**
+         * Runs the task for one position.
+         * @param own The occupancy mask of the side to move.
+         * @param opponent The occupancy mask of its opponent.
+         * @param index The index of the position in its table.
+         */
+        void run(int own, int opponent, int index);
+    }
+
+    /**
+     * Runs a task for every canonical position of a table, in parallel over the canonical sets of own locations.
+     * @param table The table.
+     * @param task The task to run.
+     */
+    private void forEachPosition(Table table, PositionTask task) {
+        int opponentSets = table.opponentSets();
+
+        this.run(Tablebase.countCanonicalSets(table.own), setIndex -> {
+            int own = Tablebase.getCanonicalSet(table.own, setIndex);
+            int free = Position.ALL_LOCATIONS & ~own;
+            int compressed = (1 << table.opponent) - 1;
+
+            // If the own set is symmetric, some opponent sets are images of others and are never probed
+            boolean symmetric = Symmetry.countInvariant(own, 0) > 1;
+
+            for (int opponentRank = 0; opponentRank < opponentSets; opponentRank++) {
+                int opponent = Tablebase.expand(compressed, free);
+                if (!symmetric || Symmetry.canonical(own, opponent) == 0) {
+                    task.run(own, opponent, setIndex * opponentSets + opponentRank);
+                }
+                compressed = Tablebase.nextCombination(compressed);
+            }
+        });
+    }
+
+    /**
+     * Runs a task for every index in a range on the generator's threads, and waits for them all.
+     * @param count The number of indices.
+     * @param task The task to run.
+     */
+    private void run(int count, IntConsumer task) {
+        try {
+            this.pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Solving failed", exception.getCause());
+        }
+    }
+
+    /**
+     * Writes a solved table, one byte per position.
+     * @param table The table.
+     * @throws IOException Thrown if the file can't be written.
+     */
+    private void write(Table table) throws IOException {
+        File file = new File(this.directory, Tablebase.getFileName(table.own, table.opponent));
+        File partial = new File(this.directory, file.getName() + ".part");
+
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(partial), 1 << 16)) {
+            for (int state : table.states) {
+                output.write(state & 0xFF);
+            }
+        }
+
+        if (!partial.renameTo(file)) {
+            throw new IOException("Couldn't rename " + partial + " to " + file);
+        }
+    }
+
+    /**
+     * Runs the tablebase generator.
+     * @param arguments Command-line arguments: the options, the most tokens per side and an optional directory.
+     * @throws IOException Thrown if the tables can't be read or written.
+     */
+    public static void main(String[] arguments) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int argument = 0;
+
+        for (; argument < arguments.length && arguments[argument].startsWith("-"); argument++) {
+            if (arguments[argument].equals("-threads") && argument + 1 < arguments.length) {
+                threads = Integer.parseInt(arguments[++argument]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arguments[argument]);
+            }
+        }
+
+        if (argument >= arguments.length) {
+            System.out.println("Usage: java game.engine.TablebaseGenerator [-threads n] <max tokens per side> " +
+                    "[directory]");
+            return;
+        }
+
+        int maxPieces = Integer.parseInt(arguments[argument++]);
+        File directory = new File(argument < arguments.length ? arguments[argument] : Tablebase.DEFAULT_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create " + directory);
+        }
+
+        new TablebaseGenerator(directory, threads).generate(maxPieces);
+    }
+}
@@ -0,0 +1,242 @@
+package game.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results, indexed by Zobrist key (see {@link game.board.Zobrist}), so the search
+ * doesn't explore the same position again when it is reached by a different order of moves.
+ * <p>
+ * The table is allocated once, as two flat arrays of longs with no objects per entry. Each entry packs the depth,
+ * bound, score, best move and age of a result into one long, and stores the position's key XORed with that long
+ * in the other array. A probe only accepts an entry if the two still match, so an entry torn by several threads
+ * writing it at once is never mistaken for a result, and the table can be shared without locks.
+ * <p>
+ * Entries live in buckets of two. The first slot keeps the deepest result, unless it is left over from an earlier
+ * search, and the second slot always takes the newest result.
+ * <p>
+ * The table keeps no counters of its own, which every thread sharing it would write to. Each {@link Search} counts
+ * its own probes, hits and collisions instead.
+ */
+public class TranspositionTable {
+    /**
+     * The bound of a score which is at most the real score, from a search that failed low.
+     */
+    public static final int UPPER = 1;
+
+    /**
+     * The bound of a score which is at least the real score, from a search that failed high.
+     */
+    public static final int LOWER = 2;
+
+    /**
+     * The bound of a score which is the real score.
+     */
+    public static final int EXACT = 3;
+
+    /**
+     * The number of bytes used by each entry.
+     */
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /**
+     * The packed move meaning there is no best move.
+     */
+    private static final int NO_MOVE = 0x7FFF;
+
+    /**
+     * The number of entries checked to estimate the fill rate.
+     */
+    private static final int FILL_SAMPLE = 1000;
+
+    /**
+     * The key of each entry XORed with its data.
+     */
+    private final long[] keys;
+
+    /**
+     * The packed data of each entry: the move in bits 0-14, the score in bits 16-31, the depth in bits 32-39,
+     * the bound in bits 40-41 and the age in bits 42-49. An empty entry is 0, which has no bound.
+     */
+    private final long[] data;
+
+    /**
+     * The mask of an index into the arrays, whose length is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * The age of the current search, which tells entries from earlier searches apart.
+     */
+    private int age;
+
+    /**
+     * Creates an empty table.
+     * @param megabytes The size of the table in megabytes. It is rounded down to a power of two entries.
+     * @throws IllegalArgumentException Thrown if the size is less than one megabyte.
+     */
+    public TranspositionTable(int megabytes) throws IllegalArgumentException {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("The transposition table needs at least 1 MB, not " + megabytes);
+        }
+
+        int entries = Integer.highestOneBit((int) Math.min((long) megabytes * 1024 * 1024 / ENTRY_BYTES, 1 << 30));
+        this.keys = new long[entries];
+        this.data = new long[entries];
+        this.mask = entries - 1;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key The position's Zobrist key.
+     * @return The packed entry for the position, to be read with the static getters, or 0 if there is none.
+     */
+    public long probe(long key) {
+        int index = (int) key & this.mask & ~1;
+
+        for (int slot = index; slot <= index + 1; slot++) {
+            // Read the data once, as another thread may be writing the slot
+            long entry = this.data[slot];
+            if (entry != 0 && (this.keys[slot] ^ entry) == key) {
+                return entry;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Stores a search result.
+     * @param key The position's Zobrist key.
+     * @param depth The depth the position was searched to, from 0 to 255.
+     * @param bound The bound of the score: UPPER, LOWER or EXACT.
+     * @param score The score of the position.
+     * @param move The best move found, or Move.NULL if there is none.
+     * @return True if the store replaced a result for a different position from the current search (a collision),
+     * false otherwise.
+     */
+    public boolean store(long key, int depth, int bound, int score, int move) {
+        int index = (int) key & this.mask & ~1;
+        int slot;
+        boolean collision = false;
+
+        if (this.holds(index, key)) {
+            slot = index;
+        } else if (this.holds(index + 1, key)) {
+            slot = index + 1;
+        } else {
+            // The first slot keeps a deeper result from this search; otherwise the second slot is replaced
+            long first = this.data[index];
+            boolean keepFirst = first != 0 && getAge(first) == this.age && getDepth(first) > depth;
+            slot = keepFirst ? index + 1 : index;
+
+            long old = this.data[slot];
+            collision = old != 0 && getAge(old) == this.age;
+        }
+
+        // Keep the best move of an earlier result for the same position if this one has none
+        if (move == Move.NULL && this.holds(slot, key)) {
+            move = getMove(this.data[slot]);
+        }
+
+        long entry = (move == Move.NULL ? NO_MOVE : move & NO_MOVE) |
+                (long) (score & 0xFFFF) << 16 |
+                (long) depth << 32 |
+                (long) bound << 40 |
+                (long) this.age << 42;
+        this.data[slot] = entry;
+        this.keys[slot] = key ^ entry;
+        return collision;
+    }
+
+    /**
+     * Checks if a slot holds a result for a position.
+     * @param slot The index of the slot.
+     * @param key The position's Zobrist key.
+     * @return True if the slot holds a result for the position, false otherwise.
+     */
+    private boolean holds(int slot, long key) {
+        long entry = this.data[slot];
+        return entry != 0 && (this.keys[slot] ^ entry) == key;
+    }
+
+    /**
+     * Starts a new search, so results from earlier searches are replaced first.
+     */
+    public void newSearch() {
+        this.age = (this.age + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(this.keys, 0);
+        Arrays.fill(this.data, 0);
+        this.age = 0;
+    }
+
+    /**
+     * @return The number of entries in the table.
+     */
+    public int getSize() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Estimates how full the table is from a sample of its entries.
+     * @return The fraction of entries, from 0 to 1, holding a result from the current search.
+     */
+    public double getFillRate() {
+        int sample = Math.min(FILL_SAMPLE, this.getSize());
+        int filled = 0;
+
+        for (int i = 0; i < sample; i++) {
+            if (this.data[i] != 0 && getAge(this.data[i]) == this.age) {
+                filled++;
+            }
+        }
+
+        return (double) filled / sample;
+    }
+
+    /**
+     * @param entry A packed entry returned by {@link #probe(long)}.
+     * @return The best move of the entry, or Move.NULL if there is none.
+     */
+    public static int getMove(long entry) {
+        int move = (int) entry & NO_MOVE;
+        return move == NO_MOVE ? Move.NULL : move;
+    }
+
+    /**
+     * @param entry A packed entry returned by {@link #probe(long)}.
+     * @return The score of the entry.
+     */
+    public static int getScore(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    /**
+     * @param entry A packed entry returned by {@link #probe(long)}.
+     * @return The depth the entry's position was searched to.
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * @param entry A packed entry returned by {@link #probe(long)}.
+     * @return The bound of the entry's score: UPPER, LOWER or EXACT.
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * @param entry A packed entry.
+     * @return The age of the search which stored the entry.
+     */
+    private static int getAge(long entry) {
+        return (int) (entry >>> 42) & 0xFF;
+    }
+}
@@ -1,22 +1,44 @@
 package game.games;
 
 import game.board.Board;
-import game.players.Bot;
+import game.board.Location;
+import game.board.Position;
+import game.engine.Engine;
+import game.engine.EngineListener;
+import game.engine.Move;
+import game.engine.MoveGenerator;
+import game.players.Difficulty;
 import game.players.Person;
 import game.players.Player;
 import game.players.PlayerID;
 import game.tokens.Token;
 import game.tokens.TokenBank;
 import game.tokens.TokenStatus;
-import ui.GamePanel;
 
-import java.awt.*;
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * This class represents a game of Nine Men's Morris.
+ * This class represents a game of Nine Men's Morris. The rules state is kept by a headless {@link Engine}, and this
+ * class keeps the board and tokens in step with it. A game doesn't create any windows, so it can run headless;
+ * the UI follows it by registering a {@link GameListener}.
+ * <p>
+ * Bots choose their moves on a background thread, and their moves are played on the Event Dispatch Thread once
+ * chosen, so the window stays responsive while a bot thinks. A bot's turn is cancelled by undo, new game and load.
  */
 public class Game {
+	/**
+	 * The thread bots think on, shared by all games.
+	 */
+	private static final ExecutorService BOT_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "bot-move");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	/**
 	 * The first player. Typically, a game is played between the same players, so both players are final.
 	 */
@@ -27,11 +49,6 @@ public class Game {
 	 */
 	private final Player playerTwo;
 
-	/**
-	 * The ID of the player whose turn it is.
-	 */
-	private PlayerID currentPlayerId;
-
 	/**
 	 * The number of completed turns. This can be used to find whose turn it is currently.
 	 */
@@ -53,9 +70,19 @@ public class Game {
 	private final Board board;
 
 	/**
-	 * The game panel for displaying the game UI.
+	 * The game mode, which decides whether the second player is a bot.
+	 */
+	private final GameMode gameMode;
+
+	/**
+	 * The engine which owns the turn order, phases, mills and win detection.
+	 */
+	private final Engine engine;
+
+	/**
+	 * The listeners following the game, such as the game panel.
 	 */
-	private final GamePanel gamePanel;
+	private final List<GameListener> listeners = new ArrayList<>();
 
 	/**
 	 * Flag indicating if a mill is formed in the game.
@@ -63,35 +90,62 @@ public class Game {
 	public boolean millFormed = false;
 
 	/**
-	 * Constructs a new Game object with the specified frame.
+	 * The move being played in the current turn, or Move.NULL if no token has been placed or moved yet.
+	 */
+	private int currentMove = Move.NULL;
+
+	/**
+	 * The bot choosing its move, or null if no bot is thinking.
+	 */
+	private Player thinkingBot;
+
+	/**
+	 * The number of bot turns started or cancelled, so the move of a cancelled turn is never played.
+	 */
+	private int botTurn;
+
+	/**
+	 * Constructs a new Game object with the specified game mode, against the strongest bot.
+	 *
+	 * @param gameMode the game mode, which decides whether the second player is a bot
+	 */
+	public Game(GameMode gameMode) {
+		this(gameMode, Difficulty.HARD);
+	}
+
+	/**
+	 * Constructs a new Game object with the specified game mode and bot level.
 	 *
-	 * @param frame the frame associated with the game
+	 * @param gameMode the game mode, which decides whether the second player is a bot
+	 * @param difficulty the level of the bot, which is ignored without one
 	 */
-	public Game(Frame frame) {
+	public Game(GameMode gameMode, Difficulty difficulty) {
 		board = new Board();
+		this.gameMode = gameMode;
 		this.turnCount = 1;
+		this.engine = new Engine();
+		this.engine.addListener(new EngineListener() {
+			@Override
+			public void gameEnded(Engine engine, PlayerID winner) {
+				endGame();
+			}
+		});
 
 		// Create the players
-		GameMode gameMode = GameCaretaker.getInstance().getGameMode();
 		this.playerOne = new Person(PlayerID.BLACK);
 		if (gameMode == GameMode.PLAYER_VS_PLAYER) {
 			this.playerTwo = new Person(PlayerID.WHITE);
 		} else {
-			this.playerTwo = new Bot(PlayerID.WHITE);
+			this.playerTwo = difficulty.createBot(PlayerID.WHITE);
 		}
 
 		// Create the tokens and set their initial points
 		this.blackTokenBank = new TokenBank(this.playerOne, 0, 120);
 		this.whiteTokenBank = new TokenBank(this.playerTwo, 880, 120);
 
-		this.gamePanel = new GamePanel(frame, this);
-
-
 		this.playerOne.setTokens(this.blackTokenBank);
 		this.playerTwo.setTokens(this.whiteTokenBank);
 
-		this.currentPlayerId = PlayerID.BLACK;    // Black starts the game
-
 		GameCaretaker gameCaretaker = GameCaretaker.getInstance();
 		if (gameCaretaker.getLoadFromHome()) {
 			updateFromState(gameCaretaker.getLastSavedState());
@@ -100,6 +154,34 @@ public class Game {
 		}
 	}
 
+	/**
+	 * Adds a listener to follow the game. The listener is told about the current turn straight away.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addListener(GameListener listener) {
+		this.listeners.add(listener);
+		listener.turnChanged(this);
+	}
+
+	/**
+	 * Tells the listeners that the tokens, selections or highlights have changed.
+	 */
+	public void notifyChanged() {
+		for (GameListener listener : this.listeners) {
+			listener.gameChanged(this);
+		}
+	}
+
+	/**
+	 * Tells the listeners that the turn has changed.
+	 */
+	private void notifyTurnChanged() {
+		for (GameListener listener : this.listeners) {
+			listener.turnChanged(this);
+		}
+	}
+
 	/**
 	 * Retrieves the black token bank.
 	 *
@@ -124,7 +206,7 @@ public class Game {
 	 * @return The player ID of the player whose turn it is
 	 */
 	public PlayerID getCurrentPlayerId() {
-		return this.currentPlayerId;
+		return this.engine.getSideToMove();
 	}
 
 	/**
@@ -155,40 +237,148 @@ public class Game {
 	}
 
 	/**
-	 * Retrieves the game panel associated with the game.
+	 * Retrieves the engine which owns the rules state of the game.
+	 *
+	 * @return the engine
+	 */
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Creates a headless snapshot of the current game position.
 	 *
-	 * @return the gamePanel
+	 * @return the position of the tokens on the board, in hand and dead, whose turn it is and whether a token
+	 * must be removed
 	 */
-	public GamePanel getGamePanel() {
-		return gamePanel;
+	public Position getPosition() {
+		Position position = new Position();
+		position.setPieces(PlayerID.BLACK, this.board.getOccupancy(PlayerID.BLACK),
+				this.blackTokenBank.countByStatus(TokenStatus.OFF_BOARD),
+				this.blackTokenBank.countByStatus(TokenStatus.DEAD));
+		position.setPieces(PlayerID.WHITE, this.board.getOccupancy(PlayerID.WHITE),
+				this.whiteTokenBank.countByStatus(TokenStatus.OFF_BOARD),
+				this.whiteTokenBank.countByStatus(TokenStatus.DEAD));
+		position.setSideToMove(this.getCurrentPlayerId());
+		position.setPendingRemoval(this.millFormed);
+		return position;
 	}
 
 	/**
-	 * Switches turns between the players and updates the UI.
+	 * Finishes the current turn: plays the turn's move in the engine, then hands over to the next player
+	 * unless the game is over.
 	 */
 	public void switchTurns() {
-		// Adding memento to the caretaker
-		// Change the UI text and current player
-		if (this.currentPlayerId == PlayerID.BLACK) {
-			this.currentPlayerId = PlayerID.WHITE;
-			gamePanel.setTurnText("White's Turn");
-			gamePanel.setT2TokenText("Tokens remaining: " +
-					(TokenBank.TOTAL_TOKEN_COUNT - this.whiteTokenBank.getByStatus(TokenStatus.DEAD).size()));
-		} else {
-			this.currentPlayerId = PlayerID.BLACK;
-			gamePanel.setTurnText("Black's Turn");
-			gamePanel.setT1TokenText("Tokens remaining: " +
-					(TokenBank.TOTAL_TOKEN_COUNT - this.blackTokenBank.getByStatus(TokenStatus.DEAD).size()));
-		}
-		if (playerOne.getPlayerID() == currentPlayerId) {
-			playerOne.generateAction(this);
-		} else {
-			playerTwo.generateAction(this);
+		// The engine passes the turn and decides if the game is over
+		if (this.currentMove != Move.NULL) {
+			this.engine.play(this.currentMove);
+			this.currentMove = Move.NULL;
 		}
-		// Update the turns counter
+
+		// Update the turns counter and add a memento to the caretaker
 		this.turnCount++;
 		GameCaretaker.getInstance().addMemento(new Game.GameMemento(turnCount, this.getBlackTokenBank(), this.getWhiteTokenBank()).getMementoString());
-		gamePanel.repaint();
+		this.notifyTurnChanged();
+
+		if (this.engine.isOver()) return;
+
+		Player player = this.getCurrentPlayer();
+		if (player.isAutomated()) {
+			this.startBotTurn(player);
+		} else {
+			player.generateAction(this);
+		}
+	}
+
+	/**
+	 * Finds the player whose turn it is.
+	 *
+	 * @return the current player
+	 */
+	private Player getCurrentPlayer() {
+		return playerOne.getPlayerID() == this.getCurrentPlayerId() ? playerOne : playerTwo;
+	}
+
+	/**
+	 * Lets a bot choose its move on the bot thread. The move is played on the Event Dispatch Thread once chosen,
+	 * unless the turn has been cancelled.
+	 *
+	 * @param bot the bot whose turn it is
+	 */
+	private void startBotTurn(Player bot) {
+		int turn = ++this.botTurn;
+		this.thinkingBot = bot;
+		this.notifyChanged();
+
+		Position position = this.getPosition();
+		BOT_THREAD.execute(() -> {
+			int move = Move.NULL;
+			try {
+				move = bot.chooseMove(position);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+
+			int chosen = move;
+			SwingUtilities.invokeLater(() -> this.finishBotTurn(turn, bot, chosen));
+		});
+	}
+
+	/**
+	 * Plays the move a bot chose, on the Event Dispatch Thread. If the bot didn't choose a legal move, the first
+	 * legal move is played for it so the game carries on.
+	 *
+	 * @param turn the number of the bot turn the move was chosen for
+	 * @param bot  the bot
+	 * @param move the move, or Move.NULL if the bot didn't choose one
+	 */
+	private void finishBotTurn(int turn, Player bot, int move) {
+		if (turn != this.botTurn) return;
+
+		this.thinkingBot = null;
+		if (move == Move.NULL || !this.engine.isLegal(move)) {
+			// A bot which failed or chose an illegal move would leave the game waiting forever, so it plays the
+			// first legal move instead
+			System.err.println("The " + bot.getPlayerID() + " bot didn't choose a legal move, so it plays the " +
+					"first one");
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			if (this.engine.generateMoves(moves) == 0) {
+				this.notifyChanged();
+				return;
+			}
+			move = moves[0];
+		}
+		bot.playMove(this, move);
+	}
+
+	/**
+	 * Cancels the bot's turn if a bot is thinking, and stops both players' background thinking, which is about a
+	 * position the game is leaving.
+	 *
+	 * @return true if a bot was thinking about its move
+	 */
+	private boolean cancelBotTurn() {
+		boolean thinking = this.thinkingBot != null;
+		this.botTurn++;
+		this.thinkingBot = null;
+
+		for (Player player : new Player[] {this.playerOne, this.playerTwo}) {
+			if (!player.isAutomated()) continue;
+
+			// Anything the bot starts before its cancelled move returns is stopped once it has returned
+			player.stopThinking();
+			BOT_THREAD.execute(player::stopThinking);
+		}
+		return thinking;
+	}
+
+	/**
+	 * Checks if a bot is choosing its move, during which the board doesn't accept input.
+	 *
+	 * @return true if a bot is thinking, false otherwise
+	 */
+	public boolean isBotThinking() {
+		return this.thinkingBot != null;
 	}
 
 	/**
@@ -205,16 +395,10 @@ public class Game {
 	 * @param previousState the previous game state
 	 */
 	public void updateFromState(String previousState) {
+		this.cancelBotTurn();
 		this.getBoard().resetLocation();
 		String turnIndex = previousState.split("\n")[0];
 		this.turnCount = Integer.parseInt(turnIndex.trim());
-		if (this.turnCount % 2 == 1) {
-			this.currentPlayerId = playerOne.getPlayerID();
-			gamePanel.setTurnText("Black's Turn");
-		} else {
-			this.currentPlayerId = playerTwo.getPlayerID();
-			gamePanel.setTurnText("White's Turn");
-		}
 		String tokenBank1 = previousState.split("\n")[1];
 		String tokenBank1data = tokenBank1.split("\\?")[1];
 		String tokenBank2 = previousState.split("\n")[2];
@@ -229,24 +413,160 @@ public class Game {
 		} else {
 			System.out.println("error when load");
 		}
-		gamePanel.setT1TokenText("Tokens remaining: " +
-				(TokenBank.TOTAL_TOKEN_COUNT - this.blackTokenBank.getByStatus(TokenStatus.DEAD).size()));
-		gamePanel.setT2TokenText("Tokens remaining: " + (TokenBank.TOTAL_TOKEN_COUNT - this.whiteTokenBank.getByStatus(TokenStatus.DEAD).size()));
-		gamePanel.repaint();
+
+		// The loaded state replaces the engine's position and move history; black moves on odd turns
+		this.currentMove = Move.NULL;
+		this.millFormed = false;
+		Position position = this.getPosition();
+		position.setSideToMove(this.turnCount % 2 == 1 ? playerOne.getPlayerID() : playerTwo.getPlayerID());
+		this.engine.reset(position);
+		this.notifyTurnChanged();
+
+		// A loaded game may continue with the bot's turn
+		Player player = this.getCurrentPlayer();
+		if (!this.engine.isOver() && player.isAutomated()) {
+			this.startBotTurn(player);
+		}
 	}
 
 	/**
-	 * Performs the undo operation.
+	 * Performs the undo operation. Moves are taken back one at a time from the engine's move history, or from the
+	 * saved states if the history doesn't go back far enough, e.g. after loading a game.
+	 *
+	 * @return true if anything was undone, false if there is nothing to undo
 	 */
-	public void undo() {
+	public boolean undo() {
+		// A bot which is still thinking hasn't replied, so only its opponent's move is taken back
+		boolean botThinking = this.cancelBotTurn();
+		if (this.millFormed && this.currentMove != Move.NULL) {
+			// Take back the move that formed the mill, before the token was removed
+			this.unmake(this.currentMove);
+			this.currentMove = Move.NULL;
+			this.millFormed = false;
+			this.finishHistoryChange();
+			return true;
+		}
+
+		int turns = botThinking ? 1 : this.turnsPerUndo();
+		if (this.engine.getHistorySize() >= turns) {
+			for (int i = 0; i < turns; i++) {
+				this.unmake(this.engine.undo());
+				this.turnCount--;
+				GameCaretaker.getInstance().removeLastMemento();
+			}
+			this.finishHistoryChange();
+			return true;
+		}
+
 		String previousState = GameCaretaker.getInstance().getLastSavedState();
-		if (previousState != null) {
-			updateFromState(previousState);
+		if (previousState == null) {
+			return false;
+		}
+
+		updateFromState(previousState);
+		return true;
+	}
+
+	/**
+	 * Performs the redo operation, replaying moves which were taken back by undo.
+	 *
+	 * @return true if anything was redone, false if there is nothing to redo
+	 */
+	public boolean redo() {
+		int turns = this.turnsPerUndo();
+		if (this.millFormed || this.engine.getRedoSize() < turns) {
+			return false;
+		}
+
+		this.cancelBotTurn();
+		for (int i = 0; i < turns; i++) {
+			this.make(this.engine.redo());
+			this.turnCount++;
+			GameCaretaker.getInstance().addMemento(new Game.GameMemento(turnCount, this.getBlackTokenBank(), this.getWhiteTokenBank()).getMementoString());
+		}
+		this.finishHistoryChange();
+		return true;
+	}
+
+	/**
+	 * Finds how many moves an undo or redo covers. Against the bot, the bot's reply is undone along with the
+	 * player's move.
+	 *
+	 * @return the number of moves per undo or redo
+	 */
+	private int turnsPerUndo() {
+		return this.gameMode == GameMode.PLAYER_VS_BOT ? 2 : 1;
+	}
+
+	/**
+	 * Records the placement or movement of a token in the current turn.
+	 *
+	 * @param from the index of the location the token moved from, or Move.NONE if it was placed from the hand
+	 * @param to   the index of the location the token moved to
+	 */
+	public void recordMove(int from, int to) {
+		this.currentMove = Move.of(from, to);
+	}
+
+	/**
+	 * Records the removal of an opponent token in the current turn.
+	 *
+	 * @param index the index of the location the removed token was on
+	 */
+	public void recordCapture(int index) {
+		if (this.currentMove != Move.NULL) {
+			this.currentMove = Move.withCapture(this.currentMove, index);
+		}
+	}
+
+	/**
+	 * Replays a move on the board for the player who made it. The engine has already played the move, so the
+	 * mover is the player before the current one.
+	 *
+	 * @param move the encoded move
+	 */
+	private void make(int move) {
+		Player player = this.getCurrentPlayerId() == PlayerID.BLACK ? this.playerTwo : this.playerOne;
+		Token token = Move.isPlacement(move) ?
+				player.getTokenBank().getFirstByStatus(TokenStatus.OFF_BOARD) :
+				this.board.getLocation(Move.getFrom(move)).getToken();
+		token.placeOn(this.board.getLocation(Move.getTo(move)));
+
+		if (Move.isCapture(move)) {
+			this.board.getLocation(Move.getCaptured(move)).getToken().killToken();
+		}
+	}
+
+	/**
+	 * Takes back a move on the board. The engine has already taken the move back, so the mover is the current
+	 * player.
+	 *
+	 * @param move the encoded move
+	 */
+	private void unmake(int move) {
+		if (Move.isCapture(move)) {
+			Player opponent = this.getCurrentPlayerId() == PlayerID.BLACK ? this.playerTwo : this.playerOne;
+			opponent.getTokenBank().getFirstByStatus(TokenStatus.DEAD)
+					.placeOn(this.board.getLocation(Move.getCaptured(move)));
+		}
+
+		Token token = this.board.getLocation(Move.getTo(move)).getToken();
+		if (Move.isPlacement(move)) {
+			token.returnToBank();
 		} else {
-			gamePanel.displayUndoError();
+			token.placeOn(this.board.getLocation(Move.getFrom(move)));
 		}
 	}
 
+	/**
+	 * Brings the selections and listeners up to date after moves were undone or redone.
+	 */
+	private void finishHistoryChange() {
+		this.deselectAllTokens();
+		this.board.clearAllLocationHighlights();
+		this.notifyTurnChanged();
+	}
+
 	/**
 	 * Performs the game save operation.
 	 */
@@ -255,19 +575,15 @@ public class Game {
 	}
 
 	/**
-	 * Displays the game end dialog and ends the game.
+	 * Tells the listeners the game has ended, with the winner decided by the engine.
 	 */
 	public void endGame() {
-		Player winner;
+		PlayerID winner = this.engine.getWinner();
+		if (winner == null) return;
 
-		if (this.playerOne.getTokenBank().getByStatus(TokenStatus.DEAD).size() > 6) {
-			winner = this.playerTwo;
-		} else {
-			winner = this.playerOne;
+		for (GameListener listener : this.listeners) {
+			listener.gameEnded(this, winner);
 		}
-
-		gamePanel.getGameEndDialog().setWinner(winner.getId());
-		gamePanel.getGameEndDialog().setVisible(true);
 	}
 
 	/**
@@ -278,16 +594,6 @@ public class Game {
 		this.whiteTokenBank.deselectAll();
 	}
 
-	/**
-	 * Adds a mill with the given tokens to the game.
-	 *
-	 * @param mill the mill to add
-	 */
-	public void addMill(List<Token> mill) {
-		TokenBank tokenBank = mill.get(0).getPlayer().getTokenBank();
-		tokenBank.addMill(mill);
-	}
-
 	/**
 	 * Checks if the given token is part of a mill in the game.
 	 *
@@ -295,18 +601,8 @@ public class Game {
 	 * @return true if the token is not part of a mill, false otherwise
 	 */
 	public boolean checkIfTokenNotInMill(Token token) {
-		TokenBank tokenBank = token.getPlayer().getTokenBank();
-		return !tokenBank.isInMill(token);
-	}
-
-	/**
-	 * Removes any mills containing the given token.
-	 *
-	 * @param token the token whose mills to remove
-	 */
-	public void removeMill(Token token) {
-		TokenBank tokenBank = token.getPlayer().getTokenBank();
-		tokenBank.removeMill(token);
+		Location location = token.getBoardLocation();
+		return location == null || !location.isInMill();
 	}
 
 	/**
@@ -334,5 +630,44 @@ public class Game {
 		public String getMementoString() {
 			return mementoString;
 		}
+
+		/**
+		 * Reads the position described by a memento string, without creating a game.
+		 *
+		 * @param mementoString the memento string, or the contents of a saved game to read its last memento
+		 * @return the position described by the memento
+		 */
+		public static Position toPosition(String mementoString) {
+			String[] lines = mementoString.trim().split("\n");
+			int first = lines.length - 3;
+			Board board = new Board();
+			Position position = new Position();
+
+			for (int line = first + 1; line <= first + 2; line++) {
+				String[] bank = lines[line].trim().split("\\?");
+				int occupancy = 0;
+				int inHand = 0;
+				int dead = 0;
+
+				for (String token : bank[1].split("/")) {
+					String[] fields = token.trim().split("-");
+					if (fields.length < 3) continue;
+
+					switch (TokenStatus.valueOf(fields[0])) {
+						case OFF_BOARD -> inHand++;
+						case DEAD -> dead++;
+						case ON_BOARD -> occupancy |= 1 << board.getLocation(
+								(int) Double.parseDouble(fields[1]), (int) Double.parseDouble(fields[2])).getIndex();
+					}
+				}
+
+				position.setPieces(PlayerID.valueOf(bank[0]), occupancy, inHand, dead);
+			}
+
+			// Black moves on odd turns
+			int turns = Integer.parseInt(lines[first].trim());
+			position.setSideToMove(turns % 2 == 1 ? PlayerID.BLACK : PlayerID.WHITE);
+			return position;
+		}
 	}
 }
@@ -1,5 +1,6 @@
 package game.games;
 
+import game.players.Difficulty;
 import game.utils.FileChooserUtil;
 import game.utils.FileIOUtil;
 
@@ -26,6 +27,11 @@ public class GameCaretaker {
      */
     private GameMode gameMode;
 
+    /**
+     * The level of the bot in player versus bot games.
+     */
+    private Difficulty difficulty = Difficulty.HARD;
+
     /**
      * Boolean indicator for whether to load the game from the home screen.
      */
@@ -64,6 +70,22 @@ public class GameCaretaker {
         this.gameMode = gameMode;
     }
 
+    /**
+     * Retrieves the level of the bot.
+     * @return The level of the bot.
+     */
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Sets the level of the bot.
+     * @param difficulty The level to set.
+     */
+    public void setDifficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
+    }
+
     /**
      * Retrieves the flag indicating whether to load the game from the home screen.
      * @return True if the game is loaded from the home screen, false otherwise.
@@ -88,6 +110,15 @@ public class GameCaretaker {
         mementoStringList.add(memento);
     }
 
+    /**
+     * Removes the most recently added memento (game state) from the caretaker.
+     */
+    public void removeLastMemento() {
+        if (!mementoStringList.isEmpty()) {
+            mementoStringList.remove(mementoStringList.size() - 1);
+        }
+    }
+
     /**
      * Retrieves the string representation of a new game state.
      * @return The string representation of a new game state.
@@ -0,0 +1,27 @@
+package game.games;
+
+import game.players.PlayerID;
+
+/**
+ * A listener for changes to a game, such as the panel displaying it.
+ */
+public interface GameListener {
+    /**
+     * Called when the tokens, selections or highlights change, so the game needs to be redrawn.
+     * @param game The game which changed.
+     */
+    void gameChanged(Game game);
+
+    /**
+     * Called when the turn passes, moves are undone or redone, or a game is loaded.
+     * @param game The game whose turn changed.
+     */
+    void turnChanged(Game game);
+
+    /**
+     * Called when the game ends.
+     * @param game The game which ended.
+     * @param winner The ID of the winning player.
+     */
+    void gameEnded(Game game, PlayerID winner);
+}
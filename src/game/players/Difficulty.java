@@ -0,0 +1,143 @@
+package game.players;
+
+import game.engine.Search;
+
+import java.util.SplittableRandom;
+
+/**
+ * Enum representing the strength levels of the bot. Each level is defined by the budget of its search: the most
+ * nodes and the deepest depth searched, the time per move, and the random noise added to the scores of its moves.
+ * Weaker levels also search on one thread with a small transposition table and no pondering, so many of them can be
+ * played at once on one machine.
+ */
+public enum Difficulty {
+    /**
+     * Plays random legal moves without searching, costing almost no time.
+     */
+    BEGINNER("Beginner", 0, 0, 0, 0, 0, 0) {
+        @Override
+        public Player createBot(PlayerID id, long seed, int threads) {
+            return new Bot(id, seed);
+        }
+    },
+
+    /**
+     * Looks a few moves ahead and often misjudges which move is best.
+     */
+    EASY("Easy", 2_000, 3, 100, 60, 1, 1),
+
+    /**
+     * Searches a small tree on one thread with a little noise.
+     */
+    MEDIUM("Medium", 50_000, 6, 250, 15, 1, 4),
+
+    /**
+     * Searches as deep as it can within the time budget on every processor, and ponders during the player's turn.
+     */
+    HARD("Hard", Long.MAX_VALUE, Search.MAX_PLY, SearchBot.DEFAULT_MOVE_TIME, 0,
+            Runtime.getRuntime().availableProcessors(), Search.DEFAULT_TABLE_SIZE);
+
+    /**
+     * The name of the level shown to the player.
+     */
+    private final String label;
+
+    /**
+     * The most nodes each search thread visits per move.
+     */
+    private final long nodeLimit;
+
+    /**
+     * The deepest depth searched.
+     */
+    private final int maxDepth;
+
+    /**
+     * The time budget per move in milliseconds.
+     */
+    private final long moveTime;
+
+    /**
+     * The most random noise added to the score of each move, in evaluation units.
+     */
+    private final int noise;
+
+    /**
+     * The number of threads to search with.
+     */
+    private final int threads;
+
+    /**
+     * The size of the transposition table in megabytes.
+     */
+    private final int tableMegabytes;
+
+    /**
+     * Creates a level.
+     * @param label The name of the level shown to the player.
+     * @param nodeLimit The most nodes each search thread visits per move.
+     * @param maxDepth The deepest depth searched.
+     * @param moveTime The time budget per move in milliseconds.
+     * @param noise The most random noise added to the score of each move.
+     * @param threads The number of threads to search with.
+     * @param tableMegabytes The size of the transposition table in megabytes.
+     */
+    Difficulty(String label, long nodeLimit, int maxDepth, long moveTime, int noise, int threads,
+               int tableMegabytes) {
+        this.label = label;
+        this.nodeLimit = nodeLimit;
+        this.maxDepth = maxDepth;
+        this.moveTime = moveTime;
+        this.noise = noise;
+        this.threads = threads;
+        this.tableMegabytes = tableMegabytes;
+    }
+
+    /**
+     * Creates a bot which plays at this level, choosing different moves every game.
+     * @param id The ID of the bot player.
+     * @return The bot.
+     */
+    public Player createBot(PlayerID id) {
+        return this.createBot(id, System.nanoTime());
+    }
+
+    /**
+     * Creates a bot which plays at this level, seeding all of its random choices so that they are the same whenever
+     * it is given the same seed. Its moves can still differ when its searches are cut short by the time budget.
+     * @param id The ID of the bot player.
+     * @param seed The seed of the bot's random numbers.
+     * @return The bot.
+     */
+    public Player createBot(PlayerID id, long seed) {
+        return this.createBot(id, seed, this.threads);
+    }
+
+    /**
+     * Creates a seeded bot which plays at this level on the given number of threads instead of the level's own,
+     * such as when many games are played at once.
+     * @param id The ID of the bot player.
+     * @param seed The seed of the bot's random numbers.
+     * @param threads The number of threads to search with.
+     * @return The bot.
+     */
+    public Player createBot(PlayerID id, long seed, int threads) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        SearchBot bot = new SearchBot(id, this.moveTime, threads, this.tableMegabytes);
+        bot.setMaxDepth(this.maxDepth);
+        bot.setSeed(seeds.nextLong());
+        bot.getSearch().setNodeLimit(this.nodeLimit);
+        bot.getSearch().setNoise(this.noise, seeds.nextLong());
+
+        // Pondering would keep a core busy for the whole game, which only the strongest level is worth
+        bot.setPondering(this == HARD);
+        return bot;
+    }
+
+    /**
+     * @return The name of the level shown to the player.
+     */
+    public String getLabel() {
+        return this.label;
+    }
+}
@@ -0,0 +1,69 @@
+package game.players;
+
+import game.board.Position;
+import game.engine.MonteCarloSearch;
+
+/**
+ * A bot player that chooses its moves with a Monte Carlo tree search (see {@link MonteCarloSearch}) within a time
+ * budget per move, by default on one thread for each available processor.
+ */
+public class MonteCarloBot extends Player {
+    /**
+     * The search used to choose moves.
+     */
+    private final MonteCarloSearch search;
+
+    /**
+     * The time budget per move in milliseconds.
+     */
+    private final long moveTime;
+
+    /**
+     * Creates a new Monte Carlo bot player with the default time budget.
+     * @param id The ID of the bot player.
+     */
+    public MonteCarloBot(PlayerID id) {
+        this(id, SearchBot.DEFAULT_MOVE_TIME, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * Creates a new Monte Carlo bot player.
+     * @param id The ID of the bot player.
+     * @param moveTime The time budget per move in milliseconds.
+     * @param threads The number of threads to search with.
+     * @param seed The seed of the random numbers used by the playouts.
+     */
+    public MonteCarloBot(PlayerID id, long moveTime, int threads, long seed) {
+        super(id);
+        this.moveTime = moveTime;
+        this.search = new MonteCarloSearch(threads, MonteCarloSearch.DEFAULT_TREE_SIZE, seed);
+    }
+
+    @Override
+    public boolean isAutomated() {
+        return true;
+    }
+
+    @Override
+    public int chooseMove(Position position) {
+        return this.search.findMove(position, this.moveTime);
+    }
+
+    @Override
+    public void stopThinking() {
+        this.search.stop();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        this.search.shutdown();
+    }
+
+    /**
+     * @return The search used to choose moves, which holds the statistics of the last move.
+     */
+    public MonteCarloSearch getSearch() {
+        return this.search;
+    }
+}
@@ -1,6 +1,12 @@
 package game.players;
 
+import game.actions.PlaceAction;
+import game.actions.RemoveAction;
+import game.board.Board;
+import game.board.Position;
+import game.engine.Move;
 import game.games.Game;
+import game.tokens.Token;
 import game.tokens.TokenBank;
 import game.tokens.TokenStatus;
 
@@ -48,7 +54,7 @@ public abstract class Player {
      * @return True if the player can jump pieces, false if they must slide.
      */
     public boolean canJump() {
-        return this.tokenBank.getByStatus(TokenStatus.ON_BOARD).size() < 4;
+        return this.tokenBank.countByStatus(TokenStatus.ON_BOARD) < 4;
     }
 
     /**
@@ -56,7 +62,7 @@ public abstract class Player {
      * @return True if the player has placed all their tokens, false otherwise.
      */
     public boolean placedAll() {
-        return this.tokenBank.getByStatus(TokenStatus.OFF_BOARD).size() == 0;
+        return this.tokenBank.countByStatus(TokenStatus.OFF_BOARD) == 0;
     }
 
     /**
@@ -73,6 +79,58 @@ public abstract class Player {
      */
     public void generateAction(Game game){}
 
+    /**
+     * Checks if the player chooses its moves with {@link #chooseMove(Position)}. The game then asks for the move on
+     * a background thread, so the window stays responsive while the player thinks.
+     * @return True if the player chooses its moves itself, false if they come from {@link #generateAction(Game)}.
+     */
+    public boolean isAutomated() {
+        return false;
+    }
+
+    /**
+     * Chooses a move. This runs on a background thread, so it must only use the given position and not the game.
+     * @param position A copy of the game's position, with this player to move.
+     * @return The encoded move (see {@link Move}), or Move.NULL if the player has none.
+     */
+    public int chooseMove(Position position) {
+        return Move.NULL;
+    }
+
+    /**
+     * Stops anything the player is doing in the background, such as thinking during the opponent's turn. This is
+     * called whenever the game's position changes other than by a move, and may be called from another thread while
+     * {@link #chooseMove(Position)} runs, which should then return as soon as possible.
+     */
+    public void stopThinking() {}
+
+    /**
+     * Stops the player's thinking and releases the threads it holds, once it has no more moves to choose. The player
+     * can't choose moves afterwards.
+     */
+    public void close() {
+        this.stopThinking();
+    }
+
+    /**
+     * Plays a whole turn through the game actions, the same way a person would by dragging a token and then
+     * clicking the token to remove.
+     * @param game The game instance in which the player is playing.
+     * @param move The encoded move (see {@link Move}), which must be legal for this player.
+     */
+    public void playMove(Game game, int move) {
+        Board board = game.getBoard();
+        Token token = Move.isPlacement(move) ?
+                this.tokenBank.getFirstByStatus(TokenStatus.OFF_BOARD) :
+                board.getLocation(Move.getFrom(move)).getToken();
+
+        new PlaceAction(game, token, board.getLocation(Move.getTo(move))).execute();
+
+        if (Move.isCapture(move) && game.millFormed) {
+            new RemoveAction(game, board.getLocation(Move.getCaptured(move)).getToken()).execute();
+        }
+    }
+
     /**
      * Gets the token bank of this player.
      * @return The token bank of this player.
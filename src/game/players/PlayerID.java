@@ -5,5 +5,13 @@ package game.players;
  */
 public enum PlayerID {
 	BLACK,
-	WHITE,
+	WHITE;
+
+	/**
+	 * Finds the other player.
+	 * @return The ID of this player's opponent.
+	 */
+	public PlayerID opponent() {
+		return this == BLACK ? WHITE : BLACK;
+	}
 }
@@ -0,0 +1,324 @@
+package game.players;
+
+import game.board.Position;
+import game.engine.Evaluation;
+import game.engine.Move;
+import game.engine.MoveGenerator;
+import game.engine.OpeningBook;
+import game.engine.ParallelSearch;
+import game.engine.Search;
+import game.engine.Tablebase;
+import game.engine.TranspositionTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A bot player that chooses its moves with an alpha-beta search (see {@link Search}) within a time budget per move.
+ * The search runs on several threads (see {@link ParallelSearch}), by default one for each available processor,
+ * weighs positions with {@link Evaluation#getDefault()}, and probes the endgame tablebases in
+ * {@link Tablebase#DEFAULT_DIRECTORY} if they have been generated. Positions
+ * in the opening book {@link OpeningBook#DEFAULT_FILE}, if it has been built, are played without searching.
+ * <p>
+ * While the opponent thinks, the bot ponders: it searches the position after the reply it expects, taken from the
+ * transposition table, on a background thread. If the opponent plays that reply, the pondering counts towards the
+ * time budget and its move is played straight away once the budget is used up. Otherwise the pondering is stopped,
+ * and the search still starts with the table it filled.
+ */
+public class SearchBot extends Player {
+    /**
+     * The time budget per move used by the game, in milliseconds.
+     */
+    public static final long DEFAULT_MOVE_TIME = 500;
+
+    /**
+     * The longest the bot ponders in milliseconds, so an opponent who leaves the game doesn't keep the cores busy.
+     */
+    private static final long MAX_PONDER_TIME = 60_000;
+
+    /**
+     * The search used to choose moves.
+     */
+    private final ParallelSearch search;
+
+    /**
+     * The time budget per move in milliseconds.
+     */
+    private final long moveTime;
+
+    /**
+     * The deepest depth searched for a move.
+     */
+    private int maxDepth = Search.MAX_PLY;
+
+    /**
+     * The opening book, or null if there is none.
+     */
+    private OpeningBook book;
+
+    /**
+     * The random numbers used to choose between book moves.
+     */
+    private SplittableRandom random = new SplittableRandom();
+
+    /**
+     * The thread the bot ponders on.
+     */
+    private final ExecutorService ponderThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ponder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Indicates whether the bot ponders during the opponent's turn.
+     */
+    private boolean pondering = true;
+
+    /**
+     * The running ponder search, or null if the bot isn't pondering.
+     */
+    private Future<Integer> ponder;
+
+    /**
+     * The key of the position being pondered.
+     */
+    private long ponderKey;
+
+    /**
+     * The time in nanoseconds (see {@link System#nanoTime()}) when the pondering started.
+     */
+    private long ponderStart;
+
+    /**
+     * The number of moves whose position was pondered.
+     */
+    private int ponderHits;
+
+    /**
+     * Creates a new search bot player with the default time budget.
+     * @param id The ID of the bot player.
+     */
+    public SearchBot(PlayerID id) {
+        this(id, DEFAULT_MOVE_TIME, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new search bot player.
+     * @param id The ID of the bot player.
+     * @param moveTime The time budget per move in milliseconds.
+     * @param threads The number of threads to search with.
+     */
+    public SearchBot(PlayerID id, long moveTime, int threads) {
+        this(id, moveTime, threads, Search.DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Creates a new search bot player with a transposition table of the given size.
+     * @param id The ID of the bot player.
+     * @param moveTime The time budget per move in milliseconds.
+     * @param threads The number of threads to search with.
+     * @param tableMegabytes The size of the transposition table in megabytes.
+     */
+    public SearchBot(PlayerID id, long moveTime, int threads, int tableMegabytes) {
+        super(id);
+        this.moveTime = moveTime;
+        this.search = new ParallelSearch(threads, tableMegabytes);
+        this.search.setEvaluation(Evaluation.getDefault());
+
+        // Endgame tablebases are optional, and are used when they have been generated
+        File directory = new File(Tablebase.DEFAULT_DIRECTORY);
+        if (directory.isDirectory()) {
+            try {
+                this.search.setTablebase(new Tablebase(directory));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        File bookFile = new File(OpeningBook.DEFAULT_FILE);
+        if (bookFile.isFile()) {
+            try {
+                this.book = new OpeningBook(bookFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public boolean isAutomated() {
+        return true;
+    }
+
+    @Override
+    public int chooseMove(Position position) {
+        // A book move costs no time, and the key is checked against the real moves in case of a collision
+        int move = this.book == null ? Move.NULL : this.book.probe(position, this.random);
+        if (move == Move.NULL || !MoveGenerator.isLegal(position, move, new int[MoveGenerator.MAX_MOVES])) {
+            move = this.think(position);
+        } else {
+            this.stopPondering();
+        }
+
+        if (move != Move.NULL && this.pondering) {
+            Position after = new Position(position);
+            after.make(move);
+            this.startPondering(after);
+        }
+
+        return move;
+    }
+
+    /**
+     * Searches for a move, reusing the pondering if the position is the one pondered.
+     * @param position The position to search.
+     * @return The best move found, or Move.NULL if there are no legal moves.
+     */
+    private int think(Position position) {
+        long pondered;
+        boolean hit;
+        int ponderMove;
+        synchronized (this) {
+            pondered = (System.nanoTime() - this.ponderStart) / 1_000_000;
+            hit = this.ponder != null && this.ponderKey == position.getKey();
+            ponderMove = this.stopPondering();
+        }
+
+        if (hit && ponderMove != Move.NULL) {
+            this.ponderHits++;
+            if (pondered >= this.moveTime) return ponderMove;
+
+            // The table holds the pondered tree, so the search quickly gets back to the pondered depth
+            return this.search.findMove(position, this.moveTime - pondered, this.maxDepth);
+        }
+
+        return this.search.findMove(position, this.moveTime, this.maxDepth);
+    }
+
+    /**
+     * Starts pondering during the opponent's turn.
+     * @param position The position after the bot's move, with the opponent to move.
+     */
+    private synchronized void startPondering(Position position) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        if (MoveGenerator.generate(position, moves) == 0) return;
+
+        // The expected reply is the table's best move, if it is a legal one
+        long entry = this.search.getTable().probe(position.getKey());
+        int reply = entry == 0 ? Move.NULL : TranspositionTable.getMove(entry);
+
+        // Without an expected reply the opponent's own position is searched, which still fills the table
+        Position target = new Position(position);
+        if (MoveGenerator.isLegal(position, reply, moves)) {
+            target.make(reply);
+        }
+
+        this.ponderKey = target.getKey();
+        this.ponderStart = System.nanoTime();
+        this.ponder = this.ponderThread.submit(() -> this.search.findMove(target, MAX_PONDER_TIME, this.maxDepth));
+    }
+
+    /**
+     * Stops the pondering and waits for its search to return, which takes at most a few thousand nodes.
+     * @return The best move of the pondered position, or Move.NULL if the bot wasn't pondering.
+     * @throws IllegalStateException Thrown if the ponder search failed.
+     */
+    private synchronized int stopPondering() throws IllegalStateException {
+        if (this.ponder == null) return Move.NULL;
+
+        Future<Integer> ponder = this.ponder;
+        this.ponder = null;
+
+        // The search clears stop requests when it starts, so the request is repeated until it returns
+        while (true) {
+            this.search.stop();
+            try {
+                return ponder.get(1, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException exception) {
+                // Not stopped yet
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return Move.NULL;
+            } catch (ExecutionException exception) {
+                throw new IllegalStateException("Ponder search failed", exception.getCause());
+            }
+        }
+    }
+
+    @Override
+    public void stopThinking() {
+        this.search.stop();
+        this.stopPondering();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        this.ponderThread.shutdownNow();
+        this.search.shutdown();
+    }
+
+    /**
+     * Sets whether the bot ponders during the opponent's turn. It should not when the opponent is another bot
+     * competing for the same cores.
+     * @param pondering True to ponder, false otherwise.
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+        if (!pondering) {
+            this.stopPondering();
+        }
+    }
+
+    /**
+     * Seeds the random numbers used to choose between book moves, so the bot plays the same book moves whenever it
+     * is given the same seed and positions.
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Sets the deepest depth searched for a move, which caps the bot's strength however fast the machine is.
+     * @param maxDepth The depth, from 1 to Search.MAX_PLY.
+     * @throws IllegalArgumentException Thrown if the depth is out of range.
+     */
+    public void setMaxDepth(int maxDepth) throws IllegalArgumentException {
+        if (maxDepth < 1 || maxDepth > Search.MAX_PLY) {
+            throw new IllegalArgumentException("The depth must be from 1 to " + Search.MAX_PLY + ", not " + maxDepth);
+        }
+
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return The number of moves whose position was pondered.
+     */
+    public int getPonderHits() {
+        return this.ponderHits;
+    }
+
+    /**
+     * Sets the opening book to play from.
+     * @param book The opening book, or null to search every move.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * @return The search used to choose moves, which holds the statistics of the last move.
+     */
+    public ParallelSearch getSearch() {
+        return this.search;
+    }
+}
@@ -0,0 +1,489 @@
+package game.players;
+
+import game.board.Position;
+import game.engine.Engine;
+import game.engine.Move;
+import game.engine.MoveGenerator;
+import game.engine.Search;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A command-line tool which plays games between two bots without the Swing interface, and reports the results with
+ * the Elo difference between the bots and a sequential probability ratio test (SPRT) verdict.
+ * <p>
+ * Usage: {@code java game.players.Tournament [-games n] [-threads t] [-seed s] [-openings plies]
+ * [-elo0 e] [-elo1 e] <first bot> <second bot>}
+ * <p>
+ * A bot is one of:
+ * <ul>
+ *     <li>{@code random}: the random {@link Bot}.</li>
+ *     <li>a {@link Difficulty} name such as {@code medium}, playing as that level on one thread without
+ *     pondering.</li>
+ *     <li>{@code search:<ms>} or {@code search:<ms>:<depth>}: a single-threaded {@link SearchBot} with the given
+ *     time per move and optional depth cap.</li>
+ *     <li>{@code mcts:<ms>}: a single-threaded {@link MonteCarloBot} with the given time per move, to compare with
+ *     the alpha-beta bots at the same CPU time.</li>
+ * </ul>
+ * Games are played in pairs. Both games of a pair start from the same opening of random moves, chosen from the seed,
+ * and the bots swap colours between them, so neither bot gains from a lucky opening or from moving first. Each game
+ * runs on its own thread from a pool of one thread per processor. The bots are created fresh for every game and
+ * closed after it, and search on one thread each so the games don't compete for the cores. Every bot's random
+ * choices are seeded from the tournament seed, so bots limited by nodes or depth play the same games on every run,
+ * while bots cut short by their time budget can still vary with the machine's load. A game is drawn when a position is
+ * repeated three times or after MAX_PLIES moves.
+ * <p>
+ * The SPRT tests whether the first bot is elo1 stronger (accept H1) or only elo0 stronger (accept H0), with 5%
+ * error rates, using the normal approximation of the game results. The variance counts one extra win and one extra
+ * loss so a run of identical results isn't taken as certain, and no verdict is given before MIN_SPRT_GAMES games.
+ */
+public class Tournament {
+    /**
+     * The number of games played by default.
+     */
+    private static final int DEFAULT_GAMES = 200;
+
+    /**
+     * The number of random moves in each opening by default.
+     */
+    private static final int DEFAULT_OPENING_PLIES = 4;
+
+    /**
+     * The number of moves after which a game is drawn.
+     */
+    private static final int MAX_PLIES = 400;
+
+    /**
+     * The chance of accepting H1 when H0 is true, and of accepting H0 when H1 is true.
+     */
+    private static final double SPRT_ERROR = 0.05;
+
+    /**
+     * The fewest games the SPRT gives a verdict after, as the normal approximation is poor for fewer.
+     */
+    private static final int MIN_SPRT_GAMES = 20;
+
+    /**
+     * The first bot's description.
+     */
+    private final String first;
+
+    /**
+     * The second bot's description.
+     */
+    private final String second;
+
+    /**
+     * Creates the first bot for each game.
+     */
+    private final BotFactory firstFactory;
+
+    /**
+     * Creates the second bot for each game.
+     */
+    private final BotFactory secondFactory;
+
+    /**
+     * The number of random moves in each opening.
+     */
+    private final int openingPlies;
+
+    /**
+     * The seed of the openings and the bots' random numbers.
+     */
+    private final long seed;
+
+    /**
+     * The number of games the first bot won.
+     */
+    private int wins;
+
+    /**
+     * The number of games drawn.
+     */
+    private int draws;
+
+    /**
+     * The number of games the first bot lost.
+     */
+    private int losses;
+
+    /**
+     * The number of games lost to an illegal move.
+     */
+    private int illegal;
+
+    /**
+     * Creates a tournament.
+     * @param first The first bot's description.
+     * @param second The second bot's description.
+     * @param openingPlies The number of random moves in each opening.
+     * @param seed The seed of the openings and the bots' random numbers.
+     * @throws IllegalArgumentException Thrown if a bot isn't known or the opening length is negative.
+     */
+    public Tournament(String first, String second, int openingPlies, long seed) throws IllegalArgumentException {
+        if (openingPlies < 0) {
+            throw new IllegalArgumentException("The opening can't have " + openingPlies + " moves");
+        }
+
+        // Each description is parsed once up front, so a typo fails before any game is played
+        this.firstFactory = parseBot(first);
+        this.secondFactory = parseBot(second);
+
+        this.first = first;
+        this.second = second;
+        this.openingPlies = openingPlies;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates a bot from its description.
+     * @param description The description, such as "random", "medium", "search:100" or "mcts:100".
+     * @param id The ID of the bot player.
+     * @param seed The seed of the bot's random numbers.
+     * @return The bot.
+     * @throws IllegalArgumentException Thrown if the description isn't a known bot.
+     */
+    public static Player createBot(String description, PlayerID id, long seed) throws IllegalArgumentException {
+        return parseBot(description).create(id, seed);
+    }
+
+    /**
+     * Parses a bot description without creating a bot, which would start its search threads.
+     * @param description The description, such as "random", "medium", "search:100" or "mcts:100".
+     * @return The factory for bots of the description.
+     * @throws IllegalArgumentException Thrown if the description isn't a known bot.
+     */
+    private static BotFactory parseBot(String description) throws IllegalArgumentException {
+        String[] parts = description.toLowerCase(Locale.ROOT).split(":");
+
+        if (parts[0].equals("random") && parts.length == 1) {
+            return Bot::new;
+        } else if (parts[0].equals("search") && (parts.length == 2 || parts.length == 3)) {
+            long moveTime;
+            int maxDepth;
+            try {
+                moveTime = Long.parseLong(parts[1]);
+                maxDepth = parts.length == 3 ? Integer.parseInt(parts[2]) : Search.MAX_PLY;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad search bot " + description);
+            }
+            if (moveTime < 1 || maxDepth < 1 || maxDepth > Search.MAX_PLY) {
+                throw new IllegalArgumentException("Bad search bot " + description);
+            }
+
+            return (id, seed) -> {
+                SearchBot bot = new SearchBot(id, moveTime, 1);
+                bot.setMaxDepth(maxDepth);
+                bot.setSeed(seed);
+                bot.setPondering(false);
+                return bot;
+            };
+        } else if (parts[0].equals("mcts") && parts.length == 2) {
+            long moveTime;
+            try {
+                moveTime = Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad Monte Carlo bot " + description);
+            }
+            if (moveTime < 1) {
+                throw new IllegalArgumentException("Bad Monte Carlo bot " + description);
+            }
+
+            return (id, seed) -> new MonteCarloBot(id, moveTime, 1, seed);
+        }
+
+        for (Difficulty difficulty : Difficulty.values()) {
+            if (difficulty.name().toLowerCase(Locale.ROOT).equals(parts[0]) && parts.length == 1) {
+                return (id, seed) -> {
+                    Player bot = difficulty.createBot(id, seed, 1);
+                    if (bot instanceof SearchBot) {
+                        ((SearchBot) bot).setPondering(false);
+                    }
+                    return bot;
+                };
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown bot " + description);
+    }
+
+    /**
+     * Plays the games on a pool of threads, and adds their results.
+     * @param games The number of games.
+     * @param threads The number of games played at once.
+     * @throws IllegalArgumentException Thrown if there are no games or threads.
+     */
+    public void play(int games, int threads) throws IllegalArgumentException {
+        if (games < 1 || threads < 1) {
+            throw new IllegalArgumentException("A tournament needs games and threads, not " + games + " and " +
+                    threads);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-game");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Integer> results = new ExecutorCompletionService<>(pool);
+
+        // Each pair of games gets its own seed up front, so the openings don't depend on which thread plays them
+        SplittableRandom random = new SplittableRandom(this.seed);
+        long[] pairSeeds = new long[(games + 1) / 2];
+        for (int pair = 0; pair < pairSeeds.length; pair++) {
+            pairSeeds[pair] = random.nextLong();
+        }
+
+        for (int game = 0; game < games; game++) {
+            int index = game;
+            results.submit(() -> this.playGame(index, pairSeeds[index / 2]));
+        }
+
+        try {
+            for (int game = 1; game <= games; game++) {
+                this.addResult(results.take().get());
+                if (game % 100 == 0 && game < games) {
+                    System.out.println("After " + game + " games: " + this.wins + " wins, " + this.draws +
+                            " draws, " + this.losses + " losses");
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while playing", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("A game failed", exception.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds the result of a game.
+     * @param result 1 if the first bot won, 0 for a draw, -1 if it lost, or 2 or -2 for the same after an illegal
+     * move.
+     */
+    private void addResult(int result) {
+        if (Math.abs(result) == 2) {
+            this.illegal++;
+            result /= 2;
+        }
+
+        if (result > 0) {
+            this.wins++;
+        } else if (result < 0) {
+            this.losses++;
+        } else {
+            this.draws++;
+        }
+    }
+
+    /**
+     * Plays one game.
+     * @param game The index of the game. Games 2n and 2n + 1 share an opening, with the bots' colours swapped.
+     * @param pairSeed The seed of the opening and bots of the game's pair.
+     * @return 1 if the first bot won, 0 for a draw, -1 if it lost, or 2 or -2 for the same after an illegal move.
+     */
+    private int playGame(int game, long pairSeed) {
+        boolean swapped = game % 2 == 1;
+        PlayerID firstId = swapped ? PlayerID.WHITE : PlayerID.BLACK;
+
+        Player firstBot = this.firstFactory.create(firstId, pairSeed + 1);
+        Player secondBot = this.secondFactory.create(firstId.opponent(), pairSeed + 2);
+
+        Engine engine = new Engine(this.createOpening(pairSeed));
+        Map<Long, Integer> seen = new HashMap<>();
+
+        try {
+            for (int ply = 0; ply < MAX_PLIES && !engine.isOver(); ply++) {
+                Position position = engine.getPosition();
+                if (seen.merge(position.getKey(), 1, Integer::sum) == 3) return 0;
+
+                PlayerID side = engine.getSideToMove();
+                Player bot = side == firstId ? firstBot : secondBot;
+                int move = bot.chooseMove(new Position(position));
+
+                if (!engine.isLegal(move)) {
+                    System.err.println("Illegal move " + Move.toString(move) + " by " +
+                            (bot == firstBot ? this.first : this.second) + " in " + position);
+                    return bot == firstBot ? -2 : 2;
+                }
+                engine.play(move);
+            }
+        } finally {
+            firstBot.close();
+            secondBot.close();
+        }
+
+        if (!engine.isOver()) return 0;
+        return engine.getWinner() == firstId ? 1 : -1;
+    }
+
+    /**
+     * Plays random moves from the starting position.
+     * @param seed The seed of the moves.
+     * @return The position after the opening.
+     */
+    private Position createOpening(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Position position = new Position();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+        for (int ply = 0; ply < this.openingPlies; ply++) {
+            int count = MoveGenerator.generate(position, moves);
+            if (count == 0) break;
+            position.make(moves[random.nextInt(count)]);
+        }
+        return position;
+    }
+
+    /**
+     * @return The first bot's score per game, from 0 to 1.
+     */
+    private double getScore() {
+        return (this.wins + 0.5 * this.draws) / (this.wins + this.draws + this.losses);
+    }
+
+    /**
+     * Finds the variance of the first bot's score in one game. One extra win and one extra loss are counted, so the
+     * variance is never 0 when every game had the same result, which would make the tests claim certainty.
+     * @return The variance.
+     */
+    private double getVariance() {
+        int games = this.wins + this.draws + this.losses + 2;
+        double score = (this.wins + 1 + 0.5 * this.draws) / games;
+        return ((this.wins + 1) * Math.pow(1 - score, 2) + this.draws * Math.pow(0.5 - score, 2) +
+                (this.losses + 1) * Math.pow(score, 2)) / games;
+    }
+
+    /**
+     * Converts a score per game to an Elo difference.
+     * @param score The score, from 0 to 1.
+     * @return The Elo difference, which is infinite for a score of 0 or 1.
+     */
+    private static double toElo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * Converts an Elo difference to an expected score per game.
+     * @param elo The Elo difference.
+     * @return The expected score, from 0 to 1.
+     */
+    private static double toScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * Finds the log-likelihood ratio of the SPRT hypotheses, with the game results taken as normally distributed.
+     * @param elo0 The Elo difference of H0.
+     * @param elo1 The Elo difference of H1.
+     * @return The log-likelihood ratio, which is positive when the results favour H1.
+     */
+    private double getLogLikelihoodRatio(double elo0, double elo1) {
+        int games = this.wins + this.draws + this.losses;
+        double variance = this.getVariance();
+        double score0 = toScore(elo0);
+        double score1 = toScore(elo1);
+        return games * (score1 - score0) * (2 * this.getScore() - score0 - score1) / (2 * variance);
+    }
+
+    /**
+     * Prints the results table, the Elo difference and the SPRT verdict.
+     * @param elo0 The Elo difference of H0.
+     * @param elo1 The Elo difference of H1.
+     */
+    public void printResults(double elo0, double elo1) {
+        int games = this.wins + this.draws + this.losses;
+        String format = "%-20s %7s %7s %7s %7s %7s%n";
+        System.out.printf(format, "Bot", "Games", "Wins", "Draws", "Losses", "Score");
+        System.out.printf(format, this.first, games, this.wins, this.draws, this.losses,
+                String.format("%.1f%%", 100 * this.getScore()));
+        System.out.printf(format, this.second, games, this.losses, this.draws, this.wins,
+                String.format("%.1f%%", 100 * (1 - this.getScore())));
+        if (this.illegal > 0) {
+            System.out.println(this.illegal + " games were lost to an illegal move");
+        }
+
+        // A 95% interval of the score, converted to Elo
+        double margin = 1.96 * Math.sqrt(this.getVariance() / games);
+        double score = this.getScore();
+        System.out.printf("Elo difference: %+.1f (95%%: %+.1f to %+.1f)%n", toElo(score),
+                toElo(Math.max(score - margin, 0)), toElo(Math.min(score + margin, 1)));
+
+        double ratio = this.getLogLikelihoodRatio(elo0, elo1);
+        double lower = Math.log(SPRT_ERROR / (1 - SPRT_ERROR));
+        double upper = Math.log((1 - SPRT_ERROR) / SPRT_ERROR);
+        String verdict = games < MIN_SPRT_GAMES ? "inconclusive, at least " + MIN_SPRT_GAMES + " games are needed" :
+                ratio >= upper ? "H1 accepted, " + this.first + " is at least " + elo1 + " Elo stronger" :
+                ratio <= lower ? "H0 accepted, " + this.first + " isn't " + elo1 + " Elo stronger" :
+                "inconclusive, more games are needed";
+        System.out.printf("SPRT [%.1f, %.1f]: LLR %.2f (%.2f, %.2f), %s%n", elo0, elo1, ratio, lower, upper,
+                verdict);
+    }
+
+    /**
+     * Creates the bots of one description for each game.
+     */
+    private interface BotFactory {
+        /**
+         * Creates a bot.
+         * @param id The ID of the bot player.
+         * @param seed The seed of the bot's random numbers.
+         * @return The bot.
+         */
+        Player create(PlayerID id, long seed);
+    }
+
+    /**
+     * Runs the tournament.
+     * @param arguments Command-line arguments: the options and the two bots.
+     */
+    public static void main(String[] arguments) {
+        int games = DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        int openingPlies = DEFAULT_OPENING_PLIES;
+        double elo0 = 0;
+        double elo1 = 10;
+        int argument = 0;
+
+        for (; argument < arguments.length && arguments[argument].startsWith("-"); argument++) {
+            if (arguments[argument].equals("-games") && argument + 1 < arguments.length) {
+                games = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-threads") && argument + 1 < arguments.length) {
+                threads = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-seed") && argument + 1 < arguments.length) {
+                seed = Long.parseLong(arguments[++argument]);
+            } else if (arguments[argument].equals("-openings") && argument + 1 < arguments.length) {
+                openingPlies = Integer.parseInt(arguments[++argument]);
+            } else if (arguments[argument].equals("-elo0") && argument + 1 < arguments.length) {
+                elo0 = Double.parseDouble(arguments[++argument]);
+            } else if (arguments[argument].equals("-elo1") && argument + 1 < arguments.length) {
+                elo1 = Double.parseDouble(arguments[++argument]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arguments[argument]);
+            }
+        }
+
+        if (argument + 2 != arguments.length) {
+            System.out.println("Usage: java game.players.Tournament [-games n] [-threads t] [-seed s] " +
+                    "[-openings plies] [-elo0 e] [-elo1 e] <first bot> <second bot>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Tournament tournament = new Tournament(arguments[argument], arguments[argument + 1], openingPlies, seed);
+        tournament.play(games, threads);
+        tournament.printResults(elo0, elo1);
+        System.out.printf("Played %d games on %d threads in %.1f s%n", games, threads,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
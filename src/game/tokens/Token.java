@@ -35,6 +35,11 @@ public class Token extends JComponent {
      */
     private final Player player;
 
+    /**
+     * The token bank this token belongs to, which counts its tokens by status.
+     */
+    private final TokenBank tokenBank;
+
     /**
      * The point where the token starts, and where it will be placed once dead.
      */
@@ -61,14 +66,15 @@ public class Token extends JComponent {
     private boolean selected;
 
     /**
-     * Creates a token at the given point belonging to the given player.
+     * Creates a token at the given point belonging to the given token bank and its player.
      * It is assumed that the token isn't on a location.
-     * @param player The player owning this token.
+     * @param tokenBank The token bank this token belongs to.
      * @param initialPoint The initial point to place this token.
      */
-    public Token(Player player, Point initialPoint) {
+    public Token(TokenBank tokenBank, Point initialPoint) {
         super();
-        this.player = player;
+        this.tokenBank = tokenBank;
+        this.player = tokenBank.getPlayer();
         this.defaultPoint = initialPoint;
         this.point = initialPoint;
         this.location = null;
@@ -135,6 +141,7 @@ public class Token extends JComponent {
      * @param status The new token status.
      */
     public void setStatus(TokenStatus status) {
+        this.tokenBank.statusChanged(this.status, status);
         this.status = status;
     }
 
@@ -166,6 +173,34 @@ public class Token extends JComponent {
         this.setStatus(TokenStatus.DEAD);
     }
 
+    /**
+     * Places the token on a location, taking it off any location it was on before.
+     * @param location The location to place the token on.
+     */
+    public void placeOn(Location location) {
+        if (this.location != null) {
+            this.location.removeToken();
+        }
+
+        this.setBoardLocation(location);
+        location.setToken(this);
+        this.point = new Point(location.getX(), location.getY());
+        this.setStatus(TokenStatus.ON_BOARD);
+    }
+
+    /**
+     * Takes the token off the board and back to its starting point, ready to be placed again.
+     */
+    public void returnToBank() {
+        if (this.location != null) {
+            this.getBoardLocation().removeToken();
+            this.setBoardLocation(null);
+        }
+
+        this.point = this.defaultPoint;
+        this.setStatus(TokenStatus.OFF_BOARD);
+    }
+
     public String tokenInfor(){
         String stringLocation;
         if(this.getStatus()==TokenStatus.OFF_BOARD){
@@ -179,9 +214,9 @@ public class Token extends JComponent {
     }
     public void loadToken(String data, Board board){
         switch (data.split("-")[0]) {
-            case "OFF_BOARD" -> this.status = TokenStatus.OFF_BOARD;
-            case "ON_BOARD" -> this.status = TokenStatus.ON_BOARD;
-            case "DEAD" -> this.status = TokenStatus.DEAD;
+            case "OFF_BOARD" -> this.setStatus(TokenStatus.OFF_BOARD);
+            case "ON_BOARD" -> this.setStatus(TokenStatus.ON_BOARD);
+            case "DEAD" -> this.setStatus(TokenStatus.DEAD);
             default -> System.out.println("error when load token status");
         }
 
@@ -3,6 +3,7 @@ package game.tokens;
 import game.board.Board;
 import game.games.Game;
 import game.players.Player;
+import game.players.PlayerID;
 
 import java.awt.Color;
 import java.awt.Graphics;
@@ -15,7 +16,8 @@ import javax.swing.JComponent;
 
 /**
  * Represents all the tokens assigned to a player for a game. The tokens in it may have any status.
- * The token bank paints itself. This class is responsible for operations on the tokens, including managing mills.
+ * The token bank paints itself. This class is responsible for operations on the tokens; mills are tracked by the
+ * board (see {@link Board#getMillMembers}).
  */
 public class TokenBank extends JComponent {
     /**
@@ -39,14 +41,14 @@ public class TokenBank extends JComponent {
     private final Player player;
 
     /**
-     * A list of all the mills formed by tokens in this token bank.
+     * The tokens in the token bank.
      */
-    private final List<List<Token>> mills;
+    private final List<Token> tokens;
 
     /**
-     * The tokens in the token bank.
+     * The number of tokens with each status, indexed by the status ordinal.
      */
-    private final List<Token> tokens;
+    private final int[] statusCounts = new int[TokenStatus.values().length];
 
     /**
      * Creates a new token bank for the given player.
@@ -58,7 +60,6 @@ public class TokenBank extends JComponent {
         super();
         this.setBounds(xPosition, yPosition, BANK_WIDTH, BANK_HEIGHT);
         this.player = player;
-        this.mills = new ArrayList<>();
         this.tokens = new ArrayList<>();
         this.createTokens();
     }
@@ -74,8 +75,29 @@ public class TokenBank extends JComponent {
 
             Point point = new Point(tokenX, tokenY);
 
-            this.tokens.add(new Token(this.player, point));
+            this.tokens.add(new Token(this, point));
         }
+
+        this.statusCounts[TokenStatus.OFF_BOARD.ordinal()] = TOTAL_TOKEN_COUNT;
+    }
+
+    /**
+     * Updates the status counts when one of the tokens changes status.
+     * @param oldStatus The token's previous status.
+     * @param newStatus The token's new status.
+     */
+    void statusChanged(TokenStatus oldStatus, TokenStatus newStatus) {
+        this.statusCounts[oldStatus.ordinal()]--;
+        this.statusCounts[newStatus.ordinal()]++;
+    }
+
+    /**
+     * Counts the tokens in the bank with the given status.
+     * @param status The status of the tokens to count.
+     * @return The number of tokens with the given status.
+     */
+    public int countByStatus(TokenStatus status) {
+        return this.statusCounts[status.ordinal()];
     }
 
     /**
@@ -93,11 +115,10 @@ public class TokenBank extends JComponent {
      * @param game
      */
     public void selectRemovableTokens(Game game) {
-        for (Token token : this.tokens) {
-            if (token.getStatus() == TokenStatus.ON_BOARD && (game.checkIfTokenNotInMill(token) ||
-                    this.isAllMills(game))) {
-                token.setSelected(true);
-            }
+        Board board = game.getBoard();
+
+        for (int removable = board.getRemovable(this.player.getId()); removable != 0; removable &= removable - 1) {
+            board.getLocation(Integer.numberOfTrailingZeros(removable)).getToken().setSelected(true);
         }
     }
 
@@ -110,12 +131,10 @@ public class TokenBank extends JComponent {
      */
     public List<Token> getRemovableTokens(Game game) {
         List<Token> removableTokens = new ArrayList<>();
+        Board board = game.getBoard();
 
-        for (Token token : this.tokens) {
-            if (token.getStatus() == TokenStatus.ON_BOARD && (game.checkIfTokenNotInMill(token) ||
-                    this.isAllMills(game))) {
-                removableTokens.add(token);
-            }
+        for (int removable = board.getRemovable(this.player.getId()); removable != 0; removable &= removable - 1) {
+            removableTokens.add(board.getLocation(Integer.numberOfTrailingZeros(removable)).getToken());
         }
 
         return removableTokens;
@@ -139,67 +158,36 @@ public class TokenBank extends JComponent {
     }
 
     /**
-     * Checks if all the tokens from this bank that are on the board are in a mill.
-     * @param game
-     * @return True if all tokens in the bank that are on the board are in a mill, false otherwise.
+     * Finds the first token in the bank with the given status.
+     * @param status The status of the token to find.
+     * @return The first token with the given status, or null if there is none.
      */
-    public boolean isAllMills(Game game) {
-        int count = 0;
-
+    public Token getFirstByStatus(TokenStatus status) {
         for (Token token : this.tokens) {
-            if (token.getStatus() == TokenStatus.ON_BOARD && game.checkIfTokenNotInMill(token)) {
-                count++;
+            if (token.getStatus() == status) {
+                return token;
             }
         }
 
-        return count == 0;
-    }
-
-    /**
-     * Deselects all the tokens.
-     */
-    public void deselectAll() {
-        this.tokens.forEach(token -> token.setSelected(false));
-    }
-
-    /**
-     * Adds a mill.
-     * @param mill A list of three tokens in this bank that form a mill.
-     */
-    public void addMill(List<Token> mill) {
-        this.mills.add(mill);
+        return null;
     }
 
     /**
-     * Checks if the given token is in an existing mill.
-     * @param token The token to check for.
-     * @return True if the token is in a mill with other tokens in this bank, false otherwise.
+     * Checks if all the tokens from this bank that are on the board are in a mill.
+     * @param game
+     * @return True if all tokens in the bank that are on the board are in a mill, false otherwise.
      */
-    public boolean isInMill(Token token) {
-        for (List<Token> mill : this.mills) {
-            if (mill.contains(token)) return true;
-        }
-
-        return false;
+    public boolean isAllMills(Game game) {
+        Board board = game.getBoard();
+        PlayerID id = this.player.getId();
+        return (board.getOccupancy(id) & ~board.getMillMembers(id)) == 0;
     }
 
     /**
-     * Removes any mills with the given token.
-     * @param token The token whose mills to remove.
+     * Deselects all the tokens.
      */
-    public void removeMill(Token token) {
-        List<List<Token>> millsToBeRemoved = new ArrayList<>();
-
-        // Find all mills containing the given token
-        this.mills.forEach(mill -> {
-            if (mill.contains(token)) {
-                millsToBeRemoved.add(mill);
-            }
-        });
-
-        // NOTE: CANNOT REMOVE FROM LIST WHILE ITERATING THROUGH IT
-        // That's why the mills to be removed are saved and then removed after the iteration is finished
-        millsToBeRemoved.forEach(this.mills::remove);
+    public void deselectAll() {
+        this.tokens.forEach(token -> token.setSelected(false));
     }
 
     public Token getClickedToken(MouseEvent event, int CLICK_PRECISION){
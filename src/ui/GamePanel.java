@@ -2,6 +2,10 @@ package ui;
 
 import game.games.Game;
 import game.games.GameCaretaker;
+import game.games.GameListener;
+import game.players.PlayerID;
+import game.tokens.TokenStatus;
+import game.tokens.TokenBank;
 
 import javax.swing.*;
 import java.awt.*;
@@ -12,9 +16,9 @@ import ui.menus.PauseMenu;
 import ui.painters.DrawControlBar;
 
 /**
- * The GamePanel class is responsible for displaying a game on the screen.
+ * The GamePanel class is responsible for displaying a game on the screen. It follows the game as a listener.
  */
-public class GamePanel extends JPanel {
+public class GamePanel extends JPanel implements GameListener {
     private final Game game;
 
     /**
@@ -90,8 +94,20 @@ public class GamePanel extends JPanel {
         });
         JButton undoGameButton = new JButton("Undo");
         undoGameButton.setPreferredSize(new Dimension(100,60));
-        undoGameButton.addActionListener(e -> game.undo());
+        undoGameButton.addActionListener(e -> {
+            if (!game.undo()) {
+                displayUndoError();
+            }
+        });
         this.add(undoGameButton);
+        JButton redoGameButton = new JButton("Redo");
+        redoGameButton.setPreferredSize(new Dimension(100,60));
+        redoGameButton.addActionListener(e -> {
+            if (!game.redo()) {
+                displayRedoError();
+            }
+        });
+        this.add(redoGameButton);
         turnLabel.setFont(new Font("Arial", Font.BOLD, 15));
         this.add(turnLabel);
         this.add(t2TokensRemainingLabel);
@@ -121,6 +137,27 @@ public class GamePanel extends JPanel {
         game.getWhiteTokenBank().paintComponent(g2d);
     }
 
+    @Override
+    public void gameChanged(Game game) {
+        repaint();
+    }
+
+    @Override
+    public void turnChanged(Game game) {
+        setTurnText(game.getCurrentPlayerId() == PlayerID.BLACK ? "Black's Turn" : "White's Turn");
+        setT1TokenText("Tokens remaining: " +
+                (TokenBank.TOTAL_TOKEN_COUNT - game.getBlackTokenBank().countByStatus(TokenStatus.DEAD)));
+        setT2TokenText("Tokens remaining: " +
+                (TokenBank.TOTAL_TOKEN_COUNT - game.getWhiteTokenBank().countByStatus(TokenStatus.DEAD)));
+        repaint();
+    }
+
+    @Override
+    public void gameEnded(Game game, PlayerID winner) {
+        gameEndDialog.setWinner(winner);
+        gameEndDialog.setVisible(true);
+    }
+
     public void setTurnText(String text) {
         turnLabel.setText(text);
     }
@@ -132,6 +169,13 @@ public class GamePanel extends JPanel {
                 JOptionPane.ERROR_MESSAGE);
     }
 
+    public void displayRedoError() {
+        JOptionPane.showMessageDialog(this,
+                "You cannot redo at this time.",
+                "Redo Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
     public void setT1TokenText(String text) { t1TokensRemainingLabel.setText(text); }
     public void setT2TokenText(String text) { t2TokensRemainingLabel.setText(text); }
 
@@ -2,6 +2,7 @@ package ui;
 import game.games.Game;
 import game.games.GameCaretaker;
 import game.games.GameMode;
+import game.players.Difficulty;
 import ui.menus.AboutMenu;
 
 import javax.swing.*;
@@ -149,13 +150,39 @@ public class HomePanel extends JPanel {
                 options[0]);
         if (optionSelected == 0) {
             GameCaretaker.getInstance().setGameMode(GameMode.PLAYER_VS_BOT);
+            GameCaretaker.getInstance().setDifficulty(chooseDifficulty(mainPanel));
         } else {
             GameCaretaker.getInstance().setGameMode(GameMode.PLAYER_VS_PLAYER);
         }
-        Game game = new Game(owner);
-        mainPanel.add(game.getGamePanel(), "gamePanel");
+        Game game = new Game(GameCaretaker.getInstance().getGameMode(), GameCaretaker.getInstance().getDifficulty());
+        GamePanel gamePanel = new GamePanel(owner, game);
+        game.addListener(gamePanel);
+        mainPanel.add(gamePanel, "gamePanel");
         CardLayout cardLayout = (CardLayout) mainPanel.getLayout();
         cardLayout.show(mainPanel, "gamePanel");
     }
+
+    /**
+     * Asks the player which level of bot to play against.
+     * @param mainPanel The panel the dialog is shown over.
+     * @return The chosen level, or the medium level if the dialog is closed.
+     */
+    private Difficulty chooseDifficulty(JPanel mainPanel) {
+        Difficulty[] levels = Difficulty.values();
+        Object[] options = new Object[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            options[i] = levels[i].getLabel();
+        }
+
+        int optionSelected = JOptionPane.showOptionDialog(mainPanel,
+                "Please choose the bot level",
+                "New Game",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                options,
+                options[Difficulty.MEDIUM.ordinal()]);
+        return optionSelected >= 0 ? levels[optionSelected] : Difficulty.MEDIUM;
+    }
 }
 
@@ -43,6 +43,9 @@ public class GameMouseListener extends MouseAdapter {
 
 	@Override
 	public void mouseClicked(MouseEvent event) {
+		// The board is the bot's while it chooses its move
+		if (this.game.isBotThinking()) return;
+
 		Token clickedToken = this.getClickedToken(event);
 		int SNAP_THRESHOLD = 80;
 		Location releaseLocation = this.game.getBoard().findNearbyEmptyLocation(event.getPoint(), SNAP_THRESHOLD);